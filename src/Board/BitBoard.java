@@ -0,0 +1,414 @@
+package Board;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Bit plane representation of a Board.
+ * Keeps one long per Orb type, where each set bit is a position holding that Orb.
+ * Each row takes up columns + 1 bits, the extra bit is an always empty guard so that
+ * shifting a plane left/right never wraps an orb into the next row.
+ * Also keeps a Zobrist hash of the layout and a count of each Orb type, updated with every change.
+ */
+class BitBoard {
+    private static final Orb[] ORBS = Orb.values();
+
+    // Random keys for every (position, Orb) and every cursor position, fixed seed so hashes are repeatable
+    private static final long[] ORB_KEYS = new long[Long.SIZE * ORBS.length];
+    private static final long[] CURSOR_KEYS = new long[Long.SIZE];
+
+    static {
+        Random random = new Random(0x9E3779B97F4A7C15L);
+        for (int i = 0; i < ORB_KEYS.length; i++)
+            ORB_KEYS[i] = random.nextLong();
+        for (int i = 0; i < CURSOR_KEYS.length; i++)
+            CURSOR_KEYS[i] = random.nextLong();
+    }
+
+    private final int columns, rows, stride;
+    private final long allCells, firstColumn, firstRow;
+    private final long[] planes;
+    private final Orb[] cells;
+    private final int[] counts;
+    private int maxCombos;
+    private long hash;
+
+    /**
+     * Creates a BitBoard of the given size with every position empty.
+     *
+     * @param columns Columns for the board.
+     * @param rows    Rows for the board.
+     */
+    BitBoard(int columns, int rows) {
+        if ((columns + 1) * rows > Long.SIZE)
+            throw new IllegalArgumentException("Board of " + columns + "x" + rows + " does not fit in a bit plane");
+        this.columns = columns;
+        this.rows = rows;
+        this.stride = columns + 1;
+        this.planes = new long[ORBS.length];
+        this.cells = new Orb[stride * rows];
+        this.counts = new int[ORBS.length];
+        long column = 0;
+        for (int row = 0; row < rows; row++)
+            column |= 1L << (row * stride);
+        this.firstColumn = column;
+        this.firstRow = (1L << columns) - 1;
+        this.allCells = columnCells((1 << columns) - 1);
+    }
+
+    /**
+     * Makes a new BitBoard copying from another BitBoard.
+     *
+     * @param other The other BitBoard to copy from.
+     */
+    BitBoard(BitBoard other) {
+        this.columns = other.columns;
+        this.rows = other.rows;
+        this.stride = other.stride;
+        this.allCells = other.allCells;
+        this.firstColumn = other.firstColumn;
+        this.firstRow = other.firstRow;
+        this.planes = other.planes.clone();
+        this.cells = other.cells.clone();
+        this.counts = other.counts.clone();
+        this.maxCombos = other.maxCombos;
+        this.hash = other.hash;
+    }
+
+    /**
+     * @param index Bit index of the position.
+     * @param orb   Orb at the position.
+     * @return Zobrist key of the given Orb at the given position.
+     */
+    private static long orbKey(int index, Orb orb) {
+        return ORB_KEYS[index * ORBS.length + orb.ordinal()];
+    }
+
+    /**
+     * @param index Bit index of the cursor.
+     * @return Zobrist key of the cursor being at the given position.
+     */
+    static long cursorKey(int index) {
+        return CURSOR_KEYS[index];
+    }
+
+    /**
+     * @param orb Orb to count.
+     * @return Number of the given Orb on the board.
+     */
+    int count(Orb orb) {
+        return counts[orb.ordinal()];
+    }
+
+    /**
+     * Blanks never match and are not counted. Bombs are, 3 or more bombs in a line match like any other Orb.
+     *
+     * @return Sum of every Orb type's count / 3, the most combos the current Orbs could make.
+     */
+    int maxCombos() {
+        return maxCombos;
+    }
+
+    /**
+     * @return Zobrist hash of the Orb layout.
+     */
+    long hash() {
+        return hash;
+    }
+
+    /**
+     * @return Number of bits each row takes up.
+     */
+    int stride() {
+        return stride;
+    }
+
+    /**
+     * @return Bits of every position on the board.
+     */
+    long allCells() {
+        return allCells;
+    }
+
+    /**
+     * @param columnMask Columns to get, bit i for column i.
+     * @return Bits of every position in the given columns.
+     */
+    long columnCells(int columnMask) {
+        long mask = 0;
+        for (int rest = columnMask; rest != 0; rest &= rest - 1)
+            mask |= firstColumn << Integer.numberOfTrailingZeros(rest);
+        return mask;
+    }
+
+    /**
+     * @param rowMask Rows to get, bit i for row i.
+     * @return Bits of every position in the given rows.
+     */
+    long rowCells(int rowMask) {
+        long mask = 0;
+        for (int rest = rowMask; rest != 0; rest &= rest - 1)
+            mask |= firstRow << (Integer.numberOfTrailingZeros(rest) * stride);
+        return mask;
+    }
+
+    /**
+     * @param column Column of the position.
+     * @param row    Row of the position.
+     * @return Bit index of the given position.
+     */
+    int index(int column, int row) {
+        return row * stride + column;
+    }
+
+    /**
+     * @param index Bit index of a position.
+     * @return Orb at the given bit index.
+     */
+    Orb get(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Sets the Orb at the given bit index, keeping the planes in sync.
+     *
+     * @param index Bit index of the position.
+     * @param orb   Orb to set to.
+     */
+    void set(int index, Orb orb) {
+        long bit = 1L << index;
+        Orb old = cells[index];
+        if (old != null) {
+            planes[old.ordinal()] &= ~bit;
+            hash ^= orbKey(index, old);
+            addCount(old, -1);
+        }
+        cells[index] = orb;
+        planes[orb.ordinal()] |= bit;
+        hash ^= orbKey(index, orb);
+        addCount(orb, 1);
+    }
+
+    /**
+     * Changes the count of the given Orb, keeping the max combos in sync.
+     */
+    private void addCount(Orb orb, int change) {
+        int o = orb.ordinal();
+        if (orb == Orb.BLANK) {
+            counts[o] += change;
+            return;
+        }
+        maxCombos -= counts[o] / 3;
+        counts[o] += change;
+        maxCombos += counts[o] / 3;
+    }
+
+    /**
+     * Sets every position in the given mask to Blank.
+     *
+     * @param mask Positions to clear.
+     */
+    void clear(long mask) {
+        for (long rest = mask & ~planes[Orb.BLANK.ordinal()]; rest != 0; rest &= rest - 1)
+            set(Long.numberOfTrailingZeros(rest), Orb.BLANK);
+    }
+
+    /**
+     * Swaps the Orbs at the two given bit indexes.
+     *
+     * @param a First bit index.
+     * @param b Second bit index.
+     */
+    void swap(int a, int b) {
+        Orb orbA = cells[a];
+        Orb orbB = cells[b];
+        if (orbA != orbB) {
+            long bits = (1L << a) | (1L << b);
+            planes[orbA.ordinal()] ^= bits;
+            planes[orbB.ordinal()] ^= bits;
+            hash ^= orbKey(a, orbA) ^ orbKey(a, orbB) ^ orbKey(b, orbB) ^ orbKey(b, orbA);
+            cells[a] = orbB;
+            cells[b] = orbA;
+        }
+    }
+
+    /**
+     * @param orb Orb to get the plane of.
+     * @return Bits of every position holding the given Orb.
+     */
+    long plane(Orb orb) {
+        return planes[orb.ordinal()];
+    }
+
+    /**
+     * @param ordinal Ordinal of the Orb to get the plane of.
+     * @return Bits of every position holding the given Orb.
+     */
+    long plane(int ordinal) {
+        return planes[ordinal];
+    }
+
+    /**
+     * @param other Other BitBoard of the same size.
+     * @return true if both have the same Orbs in the same positions.
+     */
+    boolean sameLayout(BitBoard other) {
+        return Arrays.equals(planes, other.planes);
+    }
+
+    /**
+     * @param layout Planes from planesCopy() of a BitBoard the same size.
+     * @return true if this has the same Orbs in the same positions.
+     */
+    boolean sameLayout(long[] layout) {
+        return Arrays.equals(planes, layout);
+    }
+
+    /**
+     * @return Copy of every plane, indexed by Orb ordinal.
+     */
+    long[] planesCopy() {
+        return planes.clone();
+    }
+
+    /**
+     * Finds every position that is part of a horizontal or vertical run of 3 or more.
+     *
+     * @param plane Plane to look for runs in.
+     * @return Bits of every position in a run.
+     */
+    long runs(long plane) {
+        return runs(plane, allCells);
+    }
+
+    /**
+     * Finds every position that is part of a horizontal or vertical run of 3 or more,
+     * only counting runs that have at least one position in the given region.
+     *
+     * @param plane  Plane to look for runs in.
+     * @param region Positions a run must touch to be counted.
+     * @return Bits of every position in a counted run.
+     */
+    long runs(long plane, long region) {
+        int twoStride = stride << 1;
+        long h = plane & (plane >>> 1) & (plane >>> 2);
+        long v = plane & (plane >>> stride) & (plane >>> twoStride);
+        if (region != allCells) {
+            h &= region | (region >>> 1) | (region >>> 2);
+            v &= region | (region >>> stride) | (region >>> twoStride);
+        }
+        h |= (h << 1) | (h << 2);
+        v |= (v << stride) | (v << twoStride);
+        return h | v;
+    }
+
+    /**
+     * Finds every match for every Orb type except Blank in a single sweep.
+     * Positions in a run are joined to the run positions left of and above them with the same Orb,
+     * using a union-find over bit indexes, so runs that touch end up in the same match.
+     *
+     * @param region Positions a run must touch to be counted, any runs outside it are ignored.
+     * @return Bits of each match, ordered by Orb type, then by first position.
+     */
+    long[] matchGroups(long region) {
+        long matched = 0;
+        for (int o = 0; o < ORBS.length; o++)
+            if (ORBS[o] != Orb.BLANK)
+                matched |= runs(planes[o], region);
+        if (matched == 0)
+            return new long[0];
+
+        int[] parent = new int[cells.length];
+        for (long rest = matched; rest != 0; rest &= rest - 1) {
+            int index = Long.numberOfTrailingZeros(rest);
+            parent[index] = index;
+            if (index % stride != 0 && (matched & (1L << (index - 1))) != 0 && cells[index - 1] == cells[index])
+                union(parent, index - 1, index);
+            if (index >= stride && (matched & (1L << (index - stride))) != 0 && cells[index - stride] == cells[index])
+                union(parent, index - stride, index);
+        }
+
+        // The root of every group is its first position, collect each group under its root
+        long[] byRoot = new long[cells.length];
+        long roots = 0;
+        int numGroups = 0;
+        for (long rest = matched; rest != 0; rest &= rest - 1) {
+            int index = Long.numberOfTrailingZeros(rest);
+            int root = find(parent, index);
+            if (root == index) {
+                roots |= 1L << index;
+                numGroups++;
+            }
+            byRoot[root] |= 1L << index;
+        }
+
+        long[] groups = new long[numGroups];
+        int g = 0;
+        for (int o = 0; o < ORBS.length && g < numGroups; o++)
+            for (long rest = roots & planes[o]; rest != 0; rest &= rest - 1)
+                groups[g++] = byRoot[Long.numberOfTrailingZeros(rest)];
+        return groups;
+    }
+
+    /**
+     * Drops every Orb down its column in one pass, filling Blanks from the bottom up.
+     *
+     * @return Columns that changed, bit i for column i.
+     */
+    int gravity() {
+        int changed = 0;
+        for (int column = 0; column < columns; column++) {
+            int write = index(column, rows - 1);
+            for (int read = write; read >= 0; read -= stride) {
+                Orb orb = cells[read];
+                if (orb != Orb.BLANK) {
+                    if (read != write) {
+                        swap(read, write);
+                        changed |= 1 << column;
+                    }
+                    write -= stride;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Finds the root of the given index, halving the path along the way.
+     */
+    private static int find(int[] parent, int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+    /**
+     * Joins the groups of the two given indexes, the lower root stays as the root.
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB)
+            parent[rootB] = rootA;
+        else if (rootB < rootA)
+            parent[rootA] = rootB;
+    }
+
+    /**
+     * Takes the connected group of positions containing the lowest set bit of the given mask.
+     *
+     * @param mask Positions to flood through.
+     * @return Bits of the group that contains the lowest set bit.
+     */
+    long floodLowest(long mask) {
+        long group = Long.lowestOneBit(mask);
+        long last = 0;
+        while (group != last) {
+            last = group;
+            group |= ((group << 1) | (group >>> 1) | (group << stride) | (group >>> stride)) & mask;
+        }
+        return group;
+    }
+}
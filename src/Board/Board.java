@@ -1,22 +1,26 @@
 package Board;
 
-import com.sun.org.apache.xpath.internal.operations.Or;
-
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Created by Iggie on 6/20/2017.
  */
 public class Board {
-    private Orb[][] board;
+    // Results of getTotalMatches() shared between every Board, so the same layout is only ever matched once
+    private static final EvaluationCache EVALUATIONS = new EvaluationCache(1 << 15);
+
+    private BitBoard bits;
+    private NeighborTable neighbors;
     private int columns, rows;
+    private MatchResult evaluation;
+    // Result from before the last pushMove(), popMove() puts it back so the next move can be worked out from it
+    private MatchResult undoEvaluation;
 
     private int startX, startY, currX, currY;
-    private ArrayList<Direction> moves;
+    private MovePath moves;
 
     /**
      * Creates a board with the given rows and columns.
@@ -24,18 +28,20 @@ public class Board {
      *
      * @param columns Columns for the board. If less than 3, columns will be set to 3.
      * @param rows    Rows for the board. If less than 3, rows will be set to 3.
+     * @throws IllegalArgumentException If (columns + 1) * rows is more than 64, the board must fit in a bit plane.
      */
     public Board(int columns, int rows) {
         if (columns < 3) columns = 3;
         if (rows < 3) rows = 3;
         this.columns = columns;
         this.rows = rows;
-        this.board = new Orb[rows][columns];
+        this.bits = new BitBoard(columns, rows);
+        this.neighbors = NeighborTable.of(columns, rows);
         this.startX = 0;
         this.startY = 0;
         this.currX = 0;
         this.currY = 0;
-        this.moves = new ArrayList<Direction>();
+        this.moves = MovePath.EMPTY;
         fillWithBlank();
     }
 
@@ -45,17 +51,17 @@ public class Board {
      * @param otherBoard The other board to copy from
      */
     public Board(Board otherBoard) {
-        this(otherBoard.columns, otherBoard.rows);
-        for (int x = 0; x < columns; x++) {
-            for (int y = 0; y < rows; y++) {
-                this.board[y][x] = otherBoard.board[y][x];
-            }
-        }
-        setStart(otherBoard.startX, otherBoard.startY);
-        currX = otherBoard.currX;
-        currY = otherBoard.currY;
-        moves = new ArrayList<>(otherBoard.moves);
-
+        this.columns = otherBoard.columns;
+        this.rows = otherBoard.rows;
+        this.bits = new BitBoard(otherBoard.bits);
+        this.neighbors = otherBoard.neighbors;
+        this.startX = otherBoard.startX;
+        this.startY = otherBoard.startY;
+        this.currX = otherBoard.currX;
+        this.currY = otherBoard.currY;
+        // Move paths and results are immutable, so the copy shares them
+        this.moves = otherBoard.moves;
+        this.evaluation = otherBoard.evaluation;
     }
 
     /**
@@ -64,7 +70,7 @@ public class Board {
     public void fillWithBlank() {
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                board[i][j] = Orb.BLANK;
+                bits.set(bits.index(j, i), Orb.BLANK);
             }
         }
     }
@@ -77,13 +83,13 @@ public class Board {
         do {
             for (int i = 0; i < rows; i++) {
                 for (int j = 0; j < columns; j++) {
-                    board[i][j] = Orb.randomElementOrb();
+                    bits.set(bits.index(j, i), Orb.randomElementOrb());
                 }
             }
         } while (getTotalMatches().size() != 0);
         currX = getStart().x;
         currY = getStart().y;
-        moves.clear();
+        moves = MovePath.EMPTY;
     }
 
     /**
@@ -94,7 +100,7 @@ public class Board {
         do {
             for (int i = 0; i < rows; i++) {
                 for (int j = 0; j < columns; j++) {
-                    board[i][j] = Orb.randomOrb();
+                    bits.set(bits.index(j, i), Orb.randomOrb());
                 }
             }
         } while (getInPlaceMatchesFor(Orb.FIRE).size() != 0 ||
@@ -109,24 +115,32 @@ public class Board {
                 getInPlaceMatchesFor(Orb.BOMB).size() != 0);
         currX = getStart().x;
         currY = getStart().y;
-        moves.clear();
+        moves = MovePath.EMPTY;
     }
 
     /**
      * Sets the board to the given layout through a string.
+     * Every letter is checked before the Board is changed, so a layout that is not valid leaves it as it was.
      *
-     * @param layout String to set the board off of. Length must be same as the Boards rows * cols.
+     * @param layout String to set the board off of. Length must be same as the Boards rows * cols,
+     *               and every letter must be a valid Orb letter.
      */
     public void withLayout(String layout) {
         if (layout.length() == (columns * rows)) {
+            Orb[] orbs = new Orb[layout.length()];
+            for (int i = 0; i < layout.length(); i++) {
+                orbs[i] = Orb.orbFromLetter(layout.charAt(i));
+                if (orbs[i] == null)
+                    return;
+            }
             int xpos = 0;
             int ypos = 0;
-            for (int i = 0; i < layout.length(); i++) {
+            for (Orb orb : orbs) {
                 if (xpos == columns) {
                     xpos = 0;
                     ypos++;
                 }
-                board[ypos][xpos] = Orb.orbFromLetter(layout.charAt(i));
+                bits.set(bits.index(xpos, ypos), orb);
                 xpos++;
             }
             setStart(0, 0);
@@ -135,12 +149,37 @@ public class Board {
 
     /**
      * Checks if the board can currently move in the direction given.
+     * Does not change the Board.
      *
      * @param direction Direction to check.
      * @return true if can move, false otherwise.
      */
     public boolean canMove(Direction direction) {
-        return new Board(this).move(direction);
+        int newCol = currX + direction.getColumnOffset();
+        int newRow = currY + direction.getRowOffset();
+        return newRow >= 0 && newRow < rows && newCol >= 0 && newCol < columns;
+    }
+
+    /**
+     * Gets every Direction the board can currently move in, from a table worked out once for the board size.
+     *
+     * @param numDirs Number of Directions allowed, either 4(straight) or 8(diagonals).
+     * @return The Directions that can be moved in, in Direction order. Shared by every Board of this size, so must not be changed.
+     */
+    public Direction[] getMoveOptions(int numDirs) {
+        return neighbors.from(currY * columns + currX, numDirs);
+    }
+
+    /**
+     * Checks if moving in the given direction would swap two of the same Orb, which leaves the layout the same.
+     *
+     * @param direction Direction to check, must be one the board can move in.
+     * @return true if the Orb moved into is the same as the current position Orb, false otherwise.
+     */
+    public boolean isSameOrbMove(Direction direction) {
+        int here = bits.index(currX, currY);
+        int there = bits.index(currX + direction.getColumnOffset(), currY + direction.getRowOffset());
+        return bits.get(here) == bits.get(there);
     }
 
     /**
@@ -150,46 +189,49 @@ public class Board {
      * @return Returns if the move was successful.
      */
     public boolean move(Direction direction) {
-        return moveOrb(currX, currY, direction);
+        return pushMove(direction);
+    }
+
+    /**
+     * Moves the current position orb in the given direction, in place.
+     * The move can be undone with popMove().
+     *
+     * @param direction Direction to move.
+     * @return Returns if the move was successful.
+     */
+    public boolean pushMove(Direction direction) {
+        MatchResult before = evaluation;
+        if (!moveOrb(currX, currY, direction))
+            return false;
+        undoEvaluation = before;
+        return true;
+    }
+
+    /**
+     * Undoes the last move done, swapping the orbs back and moving the current position back.
+     *
+     * @return Returns the Direction that was undone, or null if there are no moves to undo.
+     */
+    public Direction popMove() {
+        if (moves.size() == 0)
+            return null;
+        Direction direction = moves.last();
+        moves = moves.pop();
+        int lastX = currX - direction.getColumnOffset();
+        int lastY = currY - direction.getRowOffset();
+        bits.swap(bits.index(currX, currY), bits.index(lastX, lastY));
+        currX = lastX;
+        currY = lastY;
+        if (undoEvaluation != null)
+            evaluation = undoEvaluation;
+        return direction;
     }
 
     public boolean moveOrb(int column, int row, Direction direction) {
-        int newCol = column;
-        int newRow = row;
-        switch (direction) {
-            case UP:
-                newRow = row - 1;
-                break;
-            case DOWN:
-                newRow = row + 1;
-                break;
-            case LEFT:
-                newCol = column - 1;
-                break;
-            case RIGHT:
-                newCol = column + 1;
-                break;
-            case UPLEFT:
-                newCol = column - 1;
-                newRow = row - 1;
-                break;
-            case UPRIGHT:
-                newCol = column + 1;
-                newRow = row - 1;
-                break;
-            case DOWNLEFT:
-                newCol = column - 1;
-                newRow = row + 1;
-                break;
-            case DOWNRIGHT:
-                newCol = column + 1;
-                newRow = row + 1;
-                break;
-        }
+        int newCol = column + direction.getColumnOffset();
+        int newRow = row + direction.getRowOffset();
         if (!(newRow < 0 || newRow > rows - 1 || newCol < 0 || newCol > columns - 1)) {
-            Orb tmp = board[row][column];
-            board[row][column] = board[newRow][newCol];
-            board[newRow][newCol] = tmp;
+            bits.swap(bits.index(column, row), bits.index(newCol, newRow));
 
             if (column != currX && row != currY) {
                 setStart(column, row);
@@ -197,7 +239,7 @@ public class Board {
                 currX = newCol;
                 currY = newRow;
             }
-            moves.add(direction);
+            moves = moves.push(direction);
             return true;
         }
         return false;
@@ -209,43 +251,26 @@ public class Board {
      * @return A Match of all orbs that were exploded.
      */
     public Match katsu() {
-
-        ArrayList<Point> explodedOrbPositions = new ArrayList<>();
-        int numBombs = orbCount().get(Orb.BOMB);
-        while (numBombs != 0) {
-            ArrayList<Match> matchedBombs = getInPlaceMatchesFor(Orb.BOMB);
-            ArrayList<Point> matchPoints = new ArrayList<>();
-
-            for (Match m : matchedBombs) {
-                matchPoints.addAll(m.getOrbPositions());
+        long exploded = 0;
+        long bombs = bits.plane(Orb.BOMB);
+        long loose;
+        // Bombs that are not part of a match explode, a blast can break up other bomb matches so repeat until none are left
+        while ((loose = bombs & ~bits.runs(bombs)) != 0) {
+            int stride = bits.stride();
+            int columnsToBoom = 0;
+            int rowsToBoom = 0;
+            for (; loose != 0; loose &= loose - 1) {
+                int index = Long.numberOfTrailingZeros(loose);
+                columnsToBoom |= 1 << (index % stride);
+                rowsToBoom |= 1 << (index / stride);
             }
-
-            ArrayList<Integer> xToBoom = new ArrayList<>();
-            ArrayList<Integer> yToBoom = new ArrayList<>();
-            for (int y = 0; y < board.length; y++)
-                for (int x = 0; x < board[y].length; x++)
-                    if (board[y][x] == Orb.BOMB && !matchPoints.contains(new Point(x, y))) {
-                        if (!xToBoom.contains(x))
-                            xToBoom.add(x);
-                        if (!yToBoom.contains(y))
-                            yToBoom.add(y);
-                    }
-            for (Integer x : xToBoom) {
-                for (int y = 0; y < board.length; y++) {
-                    board[y][x] = Orb.BLANK;
-                    explodedOrbPositions.add(new Point(x, y));
-                }
-            }
-            for (Integer y : yToBoom) {
-                for (int x = 0; x < board[y].length; x++) {
-                    board[y][x] = Orb.BLANK;
-                    explodedOrbPositions.add(new Point(x, y));
-                }
-            }
-            numBombs--;
+            long blast = bits.columnCells(columnsToBoom) | bits.rowCells(rowsToBoom);
+            bits.clear(blast);
+            exploded |= blast;
+            bombs = bits.plane(Orb.BOMB);
         }
-        if (explodedOrbPositions.size() > 0)
-            return new Match(explodedOrbPositions.size(), Orb.BOMB, explodedOrbPositions, true);
+        if (exploded != 0)
+            return new Match(Orb.BOMB, exploded, bits.stride(), true);
         return null;
     }
 
@@ -255,24 +280,32 @@ public class Board {
      * @return ArrayList of all matches in place.
      */
     public ArrayList<Match> matchInPlace() {
+        return matchInPlace(bits.allCells());
+    }
+
+    /**
+     * Matches the Board in place, does not cascade.
+     * Only looks for matches touching the given region, anything exploded widens it to the whole Board.
+     *
+     * @param region Positions a match must touch, everything else is known to have no matches.
+     * @return ArrayList of all in place matches.
+     */
+    private ArrayList<Match> matchInPlace(long region) {
         ArrayList<Match> totalMatches = new ArrayList<>();
         Match katsu = katsu();
-        if (katsu != null)
+        if (katsu != null) {
             totalMatches.add(katsu);
-        Orb[] orbsToLookFor = Orb.values();
-        orbsToLookFor[orbsToLookFor.length - 1] = null;// Do not look for Blanks or Bombs
-        for (Orb o : orbsToLookFor) {
-            ArrayList<Match> matches = getInPlaceMatchesFor(o);
-
-            // Add all the matches for this Orb type to the total matches
-            totalMatches.addAll(matches);
+            region = bits.allCells();
+        }
+        // Every match of every Orb type, except Blanks, found in one pass
+        for (long group : bits.matchGroups(region)) {
+            Orb o = bits.get(Long.numberOfTrailingZeros(group));
+            totalMatches.add(new Match(o, group, bits.stride()));
 
             // "Match" the board, and remove all the matched orbs, replace with BLANK orb
-            for (Match m : matches) {
-                ArrayList<Point> positions = m.getOrbPositions();
-                for (Point p : positions) {
-                    board[p.y][p.x] = Orb.BLANK;
-                }
+            while (group != 0) {
+                bits.set(Long.numberOfTrailingZeros(group), Orb.BLANK);
+                group &= group - 1;
             }
         }
         return totalMatches;
@@ -287,9 +320,10 @@ public class Board {
         boolean moved = false;
         for (int i = rows - 1; i >= 1; i--) {
             for (int j = columns - 1; j >= 0; j--) {
-                if (board[i][j] == Orb.BLANK && board[i - 1][j] != Orb.BLANK) {
-                    board[i][j] = board[i - 1][j];
-                    board[i - 1][j] = Orb.BLANK;
+                int below = bits.index(j, i);
+                int above = bits.index(j, i - 1);
+                if (bits.get(below) == Orb.BLANK && bits.get(above) != Orb.BLANK) {
+                    bits.swap(below, above);
                     moved = true;
                 }
             }
@@ -303,11 +337,16 @@ public class Board {
      * @return true if moved an orb, false otherwise.
      */
     public boolean cascade() {
-        boolean moved = false;
-        for (int times = 0; times < board.length; times++)
-            if (cascadeOnce())
-                moved = true;
-        return moved;
+        return cascadeColumns() != 0;
+    }
+
+    /**
+     * Fully cascade this board in a single pass over each column.
+     *
+     * @return Columns that had an orb move, bit i for column i. 0 if nothing moved.
+     */
+    public int cascadeColumns() {
+        return bits.gravity();
     }
 
     /**
@@ -318,9 +357,11 @@ public class Board {
     public ArrayList<Match> match() {
         ArrayList<Match> matches = new ArrayList<>();
         ArrayList<Match> add;
-        while ((add = matchInPlace()).size() > 0) {
+        // After the first pass, new matches can only appear in columns that had orbs fall
+        long region = bits.allCells();
+        while ((add = matchInPlace(region)).size() > 0) {
             matches.addAll(add);
-            cascade();
+            region = bits.columnCells(cascadeColumns());
         }
         return matches;
     }
@@ -333,7 +374,7 @@ public class Board {
      * @return Orb at the given position.
      */
     public Orb orbAt(int row, int column) {
-        return board[row][column];
+        return bits.get(bits.index(column, row));
     }
 
     /**
@@ -347,10 +388,9 @@ public class Board {
      */
     public Board getPartOfBoard(int startRow, int startCol, int endRow, int endCol) {
         Board b = new Board(endCol - startCol, endRow - startRow);
-        String layout = "";
         for (int i = startRow; i < endRow; i++) {
             for (int j = startCol; j < endCol; j++) {
-                b.board[i - startRow][j - startCol] = board[i][j];
+                b.bits.set(b.bits.index(j - startCol, i - startRow), orbAt(i, j));
             }
         }
         return b;
@@ -371,10 +411,38 @@ public class Board {
     }
 
     /**
-     * @return Return list of Directions that have been made.
+     * @return Return a new list of Directions that have been made.
      */
     public ArrayList<Direction> getMoves() {
-        return moves;
+        return moves.toList();
+    }
+
+    /**
+     * @return Number of Directions that have been made.
+     */
+    public int getNumMoves() {
+        return moves.size();
+    }
+
+    /**
+     * @return The last Direction made, or null if no moves have been made.
+     */
+    public Direction getLastMove() {
+        return moves.last();
+    }
+
+    /**
+     * @return Hash of the Orb layout only, the same for any two Boards with the same Orbs in the same positions.
+     */
+    public long getLayoutHash() {
+        return bits.hash();
+    }
+
+    /**
+     * @return Hash of the Orb layout and the current position, kept up to date as the Board changes.
+     */
+    public long getHash() {
+        return bits.hash() ^ BitBoard.cursorKey(bits.index(currX, currY));
     }
 
     /**
@@ -397,14 +465,77 @@ public class Board {
      * @return ArrayList of all matches on board.
      */
     public ArrayList<Match> getTotalMatches() {
-        Board b = new Board(this);
-        ArrayList<Match> matches = new ArrayList<>();
-        ArrayList<Match> add;
-        while ((add = b.matchInPlace()).size() > 0) {
-            matches.addAll(add);
-            b.cascade();
+        return new ArrayList<>(evaluate().getMatches());
+    }
+
+    /**
+     * Gets the total matches done in this Board without changing the Board.
+     * Results are cached on this Board and in a table shared by all Boards, so matching the same layout again is free.
+     *
+     * @return MatchResult of all matches on board.
+     */
+    public MatchResult evaluate() {
+        MatchResult result = evaluation;
+        if (result != null && result.isFor(bits))
+            return result;
+        // Working the result out from the last move is cheaper than even looking it up, so it is not shared
+        result = afterLastMove();
+        if (result == null) {
+            long hash = bits.hash();
+            result = EVALUATIONS.get(hash, bits);
+            if (result == null) {
+                result = simulate();
+                EVALUATIONS.put(hash, result);
+            }
         }
-        return matches;
+        evaluation = result;
+        return result;
+    }
+
+    /**
+     * Works out the result of this layout from the last result of this Board, if it is for the layout one move back.
+     *
+     * @return MatchResult of this layout, or null if it has to be matched in full.
+     */
+    private MatchResult afterLastMove() {
+        Direction last = moves.last();
+        if (last == null || evaluation == null)
+            return null;
+        int a = bits.index(currX, currY);
+        int b = bits.index(currX - last.getColumnOffset(), currY - last.getRowOffset());
+        return evaluation.afterSwap(bits, a, b);
+    }
+
+    /**
+     * Matches a copy of this Board, including cascades.
+     * If the first pass is the only one that matched anything, the result keeps the settled layout
+     * so results one swap away can be worked out from it.
+     *
+     * @return MatchResult of this layout.
+     */
+    private MatchResult simulate() {
+        Board copy = new Board(this);
+        // Bombs can clear orbs that are not matched, so boards with them are always matched in full
+        if (bits.plane(Orb.BOMB) != 0)
+            return new MatchResult(copy.match(), bits);
+
+        ArrayList<Match> matches = copy.matchInPlace(bits.allCells());
+        if (matches.isEmpty())
+            return new MatchResult(matches, bits, bits.planesCopy(), 0);
+        long cleared = 0;
+        for (Match m : matches)
+            cleared |= m.getCells();
+        long region = copy.bits.columnCells(copy.cascadeColumns());
+        ArrayList<Match> add = copy.matchInPlace(region);
+        if (add.isEmpty())
+            return new MatchResult(matches, bits, copy.bits.planesCopy(), cleared);
+
+        // Cascaded, carry on the same way as match()
+        do {
+            matches.addAll(add);
+            region = copy.bits.columnCells(copy.cascadeColumns());
+        } while ((add = copy.matchInPlace(region)).size() > 0);
+        return new MatchResult(matches, bits);
     }
 
     /**
@@ -416,139 +547,14 @@ public class Board {
     public ArrayList<Match> getInPlaceMatchesFor(Orb o) {
         ArrayList<Match> matches = new ArrayList<>();
 
-        // Make table of positions that contain three of same orb in sequence
-        boolean found[][] = new boolean[rows][columns];
-        // Check for horizontal 3 matches
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns - 2; j++) {
-                if (board[i][j] == o && board[i][j + 1] == o && board[i][j + 2] == o) {
-                    found[i][j] = true;
-                    found[i][j + 1] = true;
-                    found[i][j + 2] = true;
-                }
-            }
-        }
-
-        // Check for vertical 3 matches
-        for (int i = 0; i < rows - 2; i++) {
-            for (int j = 0; j < columns; j++) {
-                if (board[i][j] == o && board[i + 1][j] == o && board[i + 2][j] == o) {
-                    found[i][j] = true;
-                    found[i + 1][j] = true;
-                    found[i + 2][j] = true;
-                }
-            }
-        }
+        // Every position that is in a horizontal or vertical run of three of the same orb
+        long remaining = bits.runs(bits.plane(o));
 
-        // Make list of each match with each point in that match, horizontal
-        ArrayList<ArrayList<Point>> horizontalMatches = new ArrayList<>();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                ArrayList<Point> points = new ArrayList<>();
-                int numOrbs = 0;
-                int pos = j;
-                while (pos < columns && found[i][pos]) {
-                    numOrbs++;
-                    points.add(new Point(pos, i));
-                    pos++;
-                }
-                if (numOrbs >= 3)
-                    horizontalMatches.add(points);
-                j = pos;
-            }
-        }
-
-        // Combine horizontal matches that have at least one orb touching
-        for (int i = 0; i < horizontalMatches.size(); i++) {
-            ArrayList<Point> current = horizontalMatches.get(i);
-            for (int j = i + 1; j < horizontalMatches.size(); j++) {
-                ArrayList<Point> next = horizontalMatches.get(j);
-                boolean connected = false;
-                for (Point p1 : current) {
-                    for (Point p2 : next)
-                        if (p1.x == p2.x)
-                            if (p1.y + 1 == p2.y || p1.y - 1 == p2.y) {
-                                connected = true;
-                                break;
-                            }
-                    if (connected)
-                        break;
-                }
-                if (connected) {
-                    horizontalMatches.get(i).addAll(horizontalMatches.get(i + 1));
-                    horizontalMatches.remove(i + 1);
-                }
-            }
-        }
-
-        // Make list of each match with each point in that match, vertical
-        ArrayList<ArrayList<Point>> verticalMatches = new ArrayList<>();
-        for (int j = 0; j < columns; j++) {
-            for (int i = 0; i < rows; i++) {
-                ArrayList<Point> points = new ArrayList<>();
-                int numOrbs = 0;
-                int pos = i;
-                while (pos < rows && found[pos][j]) {
-                    numOrbs++;
-                    points.add(new Point(j, pos));
-                    pos++;
-                }
-                if (numOrbs >= 3)
-                    verticalMatches.add(points);
-                i = pos;
-            }
-        }
-
-        // Combine vertical matches that have at least one orb touching
-        for (int i = 0; i < verticalMatches.size(); i++) {
-            ArrayList<Point> current = verticalMatches.get(i);
-            for (int j = i + 1; j < verticalMatches.size(); j++) {
-                ArrayList<Point> next = verticalMatches.get(j);
-                boolean connected = false;
-                for (Point p1 : current) {
-                    for (Point p2 : next)
-                        if (p1.y == p2.y)
-                            if (p1.x + 1 == p2.x || p1.x - 1 == p2.x) {
-                                connected = true;
-                                break;
-                            }
-                    if (connected)
-                        break;
-                }
-                if (connected) {
-                    verticalMatches.get(i).addAll(verticalMatches.get(i + 1));
-                    verticalMatches.remove(i + 1);
-                }
-            }
-        }
-
-        // Consolidate all horizontal and vertical matches
-        ArrayList<ArrayList<Point>> allMatches = new ArrayList<>();
-        allMatches.addAll(horizontalMatches);
-        allMatches.addAll(verticalMatches);
-
-        // Combine any horizontal and vertical matches that share orbs
-        for (int i = 0; i < allMatches.size(); i++) {
-            for (int j = 0; j < allMatches.size(); j++) {
-                if (!allMatches.get(i).equals(allMatches.get(j))) {
-                    ArrayList<Point> intersection = new ArrayList<>();
-
-                    intersection.addAll(allMatches.get(i));
-                    intersection.retainAll(allMatches.get(j));
-                    if (intersection.size() > 0) {
-                        allMatches.get(i).removeAll(allMatches.get(j));
-                        allMatches.get(i).addAll(allMatches.get(j));
-                        allMatches.remove(j);
-                        i = 0;
-                        j = 0;
-                    }
-                }
-            }
-        }
-
-        // Add to Match list each type of match and how many orbs it contains.
-        for (int i = 0; i < allMatches.size(); i++) {
-            matches.add(new Match(allMatches.get(i).size(), o, allMatches.get(i)));
+        // Runs that touch each other are the same match, so take each connected group
+        while (remaining != 0) {
+            long group = bits.floodLowest(remaining);
+            remaining &= ~group;
+            matches.add(new Match(o, group, bits.stride()));
         }
         return matches;
     }
@@ -571,19 +577,22 @@ public class Board {
     public HashMap<Orb, Integer> orbCount() {
         HashMap<Orb, Integer> orbCount = new HashMap<>();
         for (Orb o : Orb.values()) {
-            int count = 0;
-            for (int i = 0; i < rows; i++) {
-                for (int j = 0; j < columns; j++) {
-                    if (board[i][j] == o) {
-                        count++;
-                    }
-                }
-            }
-            orbCount.put(o, count);
+            orbCount.put(o, bits.count(o));
         }
         return orbCount;
     }
 
+    /**
+     * Gets the orb count of the given type of Orb in the Board.
+     * Counts are kept up to date as the Board changes, so this does not scan the Board.
+     *
+     * @param orb Orb to count.
+     * @return Number of the given Orb in the Board.
+     */
+    public int orbCount(Orb orb) {
+        return bits.count(orb);
+    }
+
     /**
      * @return Max number of combos possible in a Board with n rows, and m columns.
      */
@@ -592,15 +601,12 @@ public class Board {
     }
 
     /**
+     * Blanks can not be matched, so they are not counted.
+     *
      * @return Max number of combos possible in this Board with the current Orbs.
      */
     public int maxPossibleCombos() {
-        HashMap<Orb, Integer> orbCount = orbCount();
-        int count = 0;
-        for (Map.Entry<Orb, Integer> e : orbCount.entrySet()) {
-            count += Math.floor(e.getValue() / 3.0);
-        }
-        return count;
+        return bits.maxCombos();
     }
 
     /**
@@ -615,7 +621,7 @@ public class Board {
         this.startY = row;
         this.currX = column;
         this.currY = row;
-        moves.clear();
+        moves = MovePath.EMPTY;
     }
 
     /**
@@ -625,7 +631,7 @@ public class Board {
         StringBuilder s = new StringBuilder("");
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                s.append(board[i][j].letter());
+                s.append(orbAt(i, j).letter());
             }
         }
         return s.toString();
@@ -646,7 +652,7 @@ public class Board {
             s.append(i);
             s.append("|");
             for (int j = 0; j < columns; j++) {
-                s.append(board[i][j].letter());
+                s.append(orbAt(i, j).letter());
                 s.append("|");
             }
             s.append("\n");
@@ -667,22 +673,24 @@ public class Board {
     public boolean equals(Object object) {
         if (object instanceof Board) {
             Board otherBoard = (Board) object;
-            if (otherBoard.getMoves().size() != getMoves().size())
+            if (otherBoard.getNumMoves() != getNumMoves())
                 return false;
 //            if (!otherBoard.getStart().equals(getStart()))
 //                return false;
             if (!otherBoard.getPosition().equals(getPosition()))
                 return false;
-            if (columns == otherBoard.columns && rows == otherBoard.rows) {
-                for (int i = 0; i < rows; i++) {
-                    for (int j = 0; j < columns; j++) {
-                        if (board[i][j] != otherBoard.board[i][j])
-                            return false;
-                    }
-                }
-                return true;
-            }
+            if (columns == otherBoard.columns && rows == otherBoard.rows)
+                return bits.sameLayout(otherBoard.bits);
         }
         return false;
     }
+
+    /**
+     * Hash code based on getHash(), so Boards that are equal have the same hash code.
+     *
+     * @return Hash code of this Board.
+     */
+    public int hashCode() {
+        return Long.hashCode(getHash());
+    }
 }
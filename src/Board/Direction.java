@@ -4,7 +4,40 @@ package Board;
  * Created by Iggie on 6/20/2017.
  */
 public enum Direction {
-    UP, DOWN, LEFT, RIGHT, UPLEFT, UPRIGHT, DOWNLEFT, DOWNRIGHT;
+    UP(0, -1), DOWN(0, 1), LEFT(-1, 0), RIGHT(1, 0), UPLEFT(-1, -1), UPRIGHT(1, -1), DOWNLEFT(-1, 1), DOWNRIGHT(1, 1);
+
+    private int columnOffset, rowOffset;
+    private Direction opposite;
+
+    static {
+        UP.opposite = DOWN;
+        DOWN.opposite = UP;
+        LEFT.opposite = RIGHT;
+        RIGHT.opposite = LEFT;
+        UPLEFT.opposite = DOWNRIGHT;
+        DOWNRIGHT.opposite = UPLEFT;
+        UPRIGHT.opposite = DOWNLEFT;
+        DOWNLEFT.opposite = UPRIGHT;
+    }
+
+    Direction(int columnOffset, int rowOffset) {
+        this.columnOffset = columnOffset;
+        this.rowOffset = rowOffset;
+    }
+
+    /**
+     * @return Returns how many columns a move in this Direction changes the position by.
+     */
+    public int getColumnOffset() {
+        return columnOffset;
+    }
+
+    /**
+     * @return Returns how many rows a move in this Direction changes the position by.
+     */
+    public int getRowOffset() {
+        return rowOffset;
+    }
 
     /**
      * Checks if this Direction is opposite to the given Direction.
@@ -13,14 +46,7 @@ public enum Direction {
      * @return true if opposite, false otherwise.
      */
     public boolean isOppositeTo(Direction otherDirection) {
-        return this == UP && otherDirection == DOWN ||
-                this == DOWN && otherDirection == UP ||
-                this == LEFT && otherDirection == RIGHT ||
-                this == RIGHT && otherDirection == LEFT ||
-                this == UPLEFT && otherDirection == DOWNRIGHT ||
-                this == DOWNRIGHT && otherDirection == UPLEFT ||
-                this == UPRIGHT && otherDirection == DOWNLEFT ||
-                this == DOWNLEFT && otherDirection == UPRIGHT;
+        return otherDirection == opposite;
     }
 
     /**
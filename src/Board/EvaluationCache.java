@@ -0,0 +1,74 @@
+package Board;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded table of MatchResults keyed by layout hash, shared by every Board.
+ * Split into segments that are each locked separately and each drop their least recently used result when full.
+ */
+final class EvaluationCache {
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments;
+
+    /**
+     * Creates a cache that holds up to about the given number of results.
+     *
+     * @param capacity Max results to keep.
+     */
+    EvaluationCache(int capacity) {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment(Math.max(1, capacity / SEGMENTS));
+    }
+
+    /**
+     * Looks up the result for the given layout.
+     *
+     * @param hash Layout hash of the Board.
+     * @param bits Layout of the Board, to make sure a result with the same hash is for this layout.
+     * @return The cached result, or null if there is none.
+     */
+    MatchResult get(long hash, BitBoard bits) {
+        Segment segment = segmentFor(hash);
+        MatchResult result;
+        synchronized (segment) {
+            result = segment.get(hash);
+        }
+        return result != null && result.isFor(bits) ? result : null;
+    }
+
+    /**
+     * Adds the result for the given layout hash, replacing any result already there.
+     *
+     * @param hash   Layout hash of the Board.
+     * @param result Result to keep.
+     */
+    void put(long hash, MatchResult result) {
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            segment.put(hash, result);
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash ^ (hash >>> 32)) & (SEGMENTS - 1)];
+    }
+
+    private static class Segment extends LinkedHashMap<Long, MatchResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MatchResult> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -9,33 +9,35 @@ import java.util.ArrayList;
 public class Match {
     private int numOrbs;
     private Orb orbType;
-    private ArrayList<Point> orbPositions;
+    private long cells;
+    private int stride;
     private boolean isExplodedOrbs;
 
     /**
      * Creates a Match with the given params.
      *
-     * @param numOrbs        Number of orbs in this match.
      * @param orbType        Orb type of the Match.
-     * @param orbPositions   Positions on the board of this Match.
+     * @param cells          Positions on the board of this Match, as bits of the Board's BitBoard.
+     * @param stride         Number of bits each row of the BitBoard takes up.
      * @param isExplodedOrbs Whether or not these Orbs were exploded.
      */
-    public Match(int numOrbs, Orb orbType, ArrayList<Point> orbPositions, boolean isExplodedOrbs) {
-        this.numOrbs = numOrbs;
+    Match(Orb orbType, long cells, int stride, boolean isExplodedOrbs) {
+        this.numOrbs = Long.bitCount(cells);
         this.orbType = orbType;
-        this.orbPositions = orbPositions;
+        this.cells = cells;
+        this.stride = stride;
         this.isExplodedOrbs = isExplodedOrbs;
     }
 
     /**
      * Default type of Match, that is not exploded Orbs.
      *
-     * @param numOrbs      Number of orbs in this match.
-     * @param orbType      Orb type of the Match.
-     * @param orbPositions Positions on the board of this Match.
+     * @param orbType Orb type of the Match.
+     * @param cells   Positions on the board of this Match, as bits of the Board's BitBoard.
+     * @param stride  Number of bits each row of the BitBoard takes up.
      */
-    public Match(int numOrbs, Orb orbType, ArrayList<Point> orbPositions) {
-        this(numOrbs, orbType, orbPositions, false);
+    Match(Orb orbType, long cells, int stride) {
+        this(orbType, cells, stride, false);
     }
 
     /**
@@ -53,40 +55,23 @@ public class Match {
      * @return Returns true if this Match is a row( numOrbs >= Board columns, and at least Board columns orb y positions are equal ).
      */
     public boolean isRow(int boardColumns) {
-        boolean isRow = false;
-        if (orbPositions.size() >= boardColumns) {
-            int maxY = 0;
-            for (int i = 0; i < orbPositions.size(); i++) {
-                int y = orbPositions.get(i).y;
-                if (y > maxY)
-                    maxY = y;
-            }
-
-            int[] counts = new int[maxY + 1];
-            for (int i = 0; i < orbPositions.size(); i++) {
-                int y = orbPositions.get(i).y;
-                counts[y]++;
-                if (counts[y] >= boardColumns)
+        if (numOrbs >= boardColumns) {
+            long row = (1L << (stride - 1)) - 1;
+            for (long rest = cells; rest != 0; rest >>>= stride)
+                if (Long.bitCount(rest & row) >= boardColumns)
                     return true;
-            }
         }
-        return isRow;
+        return false;
     }
 
     /**
      * @return Returns true if this Match is a cross, 5 orbs in a cross formation.
      */
     public boolean isCross() {
-        if (orbPositions.size() == 5) {
-            Point left = orbPositions.get(0);
-            Point right = orbPositions.get(1);
-            Point down = orbPositions.get(2);
-            Point middle = orbPositions.get(3);
-            Point up = orbPositions.get(4);
-            return middle.x == left.x + 1 && middle.y == left.y &&
-                    middle.x == right.x - 1 && middle.y == right.y &&
-                    middle.y == up.y - 1 && middle.x == up.x &&
-                    middle.y == down.y + 1 && middle.x == down.x;
+        if (numOrbs == 5) {
+            // A cross has a middle orb with all 4 other orbs next to it
+            long middle = cells & (cells << 1) & (cells >>> 1) & (cells << stride) & (cells >>> stride);
+            return middle != 0;
         }
         return false;
     }
@@ -106,10 +91,25 @@ public class Match {
     }
 
     /**
-     * @return Returns the positions of the Orbs in this Match.
+     * @return Returns the positions on the board of this Match, as bits of the Board's BitBoard.
+     */
+    long getCells() {
+        return cells;
+    }
+
+    /**
+     * Positions are only made when asked for, scoring a Match never needs them.
+     * Matches are shared by every Board with the same layout, so each call makes a new list that is safe to change.
+     *
+     * @return Returns the positions of the Orbs in this Match, ordered left to right, top to bottom.
      */
     public ArrayList<Point> getOrbPositions() {
-        return orbPositions;
+        ArrayList<Point> points = new ArrayList<>(numOrbs);
+        for (long rest = cells; rest != 0; rest &= rest - 1) {
+            int index = Long.numberOfTrailingZeros(rest);
+            points.add(new Point(index % stride, index / stride));
+        }
+        return points;
     }
 
     /**
@@ -143,4 +143,4 @@ public class Match {
         }
         return false;
     }
-}
\ No newline at end of file
+}
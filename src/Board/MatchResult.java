@@ -0,0 +1,139 @@
+package Board;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of fully matching a Board, including cascades.
+ * Keeps a copy of the layout it was made from, so it can be checked before being reused.
+ * If matching did not cascade, it also keeps the layout after everything settled,
+ * so the result of a layout one swap away can often be worked out without matching again.
+ */
+public final class MatchResult {
+    private final List<Match> matches;
+    private final long[] layout;
+    private final long cells;
+    private final long[] settled;
+    private final long cleared;
+
+    /**
+     * Creates a MatchResult for the given layout, that can not be used to work out other results.
+     *
+     * @param matches Matches made by the layout, in the order they were made.
+     * @param bits    Layout the matches were made from.
+     */
+    MatchResult(ArrayList<Match> matches, BitBoard bits) {
+        this(Collections.unmodifiableList(matches), bits.planesCopy(), bits.allCells(), null, 0);
+    }
+
+    /**
+     * Creates a MatchResult for the given layout, whose matches were all made by the first pass.
+     *
+     * @param matches Matches made by the layout, in the order they were made.
+     * @param bits    Layout the matches were made from.
+     * @param settled Planes of the layout once every match was cleared and every orb fell, with no runs left.
+     * @param cleared Positions cleared by the matches.
+     */
+    MatchResult(ArrayList<Match> matches, BitBoard bits, long[] settled, long cleared) {
+        this(Collections.unmodifiableList(matches), bits.planesCopy(), bits.allCells(), settled, cleared);
+    }
+
+    private MatchResult(List<Match> matches, long[] layout, long cells, long[] settled, long cleared) {
+        this.matches = matches;
+        this.layout = layout;
+        this.cells = cells;
+        this.settled = settled;
+        this.cleared = cleared;
+    }
+
+    /**
+     * @return Returns every Match made, in the order they were made. The list can not be changed.
+     */
+    public List<Match> getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return Returns the number of Matches made.
+     */
+    public int size() {
+        return matches.size();
+    }
+
+    /**
+     * @param bits Layout to check.
+     * @return true if this result was made from the same size board with the same layout.
+     */
+    boolean isFor(BitBoard bits) {
+        return cells == bits.allCells() && bits.sameLayout(layout);
+    }
+
+    /**
+     * @param bits Layout to check.
+     * @param a    Bit index of the first swapped position.
+     * @param b    Bit index of the second swapped position.
+     * @return true if the given layout is this result's layout with the Orbs at a and b swapped.
+     */
+    boolean isSwapOf(BitBoard bits, int a, int b) {
+        if (cells != bits.allCells())
+            return false;
+        int orbA = bits.get(a).ordinal();
+        int orbB = bits.get(b).ordinal();
+        long swapped = (1L << a) | (1L << b);
+        for (int o = 0; o < layout.length; o++) {
+            long expected = o == orbA || o == orbB ? layout[o] ^ swapped : layout[o];
+            if (expected != bits.plane(o))
+                return false;
+        }
+        return orbA != orbB;
+    }
+
+    /**
+     * Works out the result of the given layout, which must be this result's layout with the Orbs at a and b swapped.
+     * Only possible if this layout did not cascade, and the swap leaves every first pass match the same.
+     * The swapped Orbs are then not matched, so they fall the same way as before, and if they do not line up
+     * into a new run where they settle, nothing cascades and the matches are the same as this result's.
+     *
+     * @param bits Layout one swap away from this result's layout.
+     * @param a    Bit index of the first swapped position.
+     * @param b    Bit index of the second swapped position.
+     * @return The result of the given layout, or null if it has to be matched in full.
+     */
+    MatchResult afterSwap(BitBoard bits, int a, int b) {
+        if (settled == null || !isSwapOf(bits, a, b))
+            return null;
+        Orb orbA = bits.get(a);
+        Orb orbB = bits.get(b);
+        if (orbA == Orb.BLANK || orbB == Orb.BLANK)
+            return null;
+        int planeA = orbA.ordinal();
+        int planeB = orbB.ordinal();
+
+        // The first pass is the same if neither Orb type gained or lost a run
+        if (bits.runs(bits.plane(orbA)) != bits.runs(layout[planeA]) || bits.runs(bits.plane(orbB)) != bits.runs(layout[planeB]))
+            return null;
+
+        long moved = (1L << settle(bits, a)) | (1L << settle(bits, b));
+        long[] swappedSettled = settled.clone();
+        swappedSettled[planeA] ^= moved;
+        swappedSettled[planeB] ^= moved;
+        if (bits.runs(swappedSettled[planeA], moved) != 0 || bits.runs(swappedSettled[planeB], moved) != 0)
+            return null;
+        return new MatchResult(matches, bits.planesCopy(), cells, swappedSettled, cleared);
+    }
+
+    /**
+     * @param bits  Layout, only used for its size.
+     * @param index Bit index of an Orb that is not cleared.
+     * @return Bit index the Orb ends up at, once everything below it that was cleared or Blank is fallen into.
+     */
+    private int settle(BitBoard bits, int index) {
+        if (cleared == 0)
+            return index;
+        int stride = bits.stride();
+        long below = bits.columnCells(1 << (index % stride)) & (-2L << index);
+        long holes = cleared | layout[Orb.BLANK.ordinal()];
+        return index + Long.bitCount(holes & below) * stride;
+    }
+}
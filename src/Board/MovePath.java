@@ -0,0 +1,66 @@
+package Board;
+
+import java.util.ArrayList;
+
+/**
+ * Immutable list of Directions, where each path points back to the path it was made from.
+ * Boards copied from each other share the moves they have in common instead of copying them.
+ */
+final class MovePath {
+    static final MovePath EMPTY = new MovePath(null, null, 0);
+
+    private final MovePath parent;
+    private final Direction direction;
+    private final int size;
+
+    private MovePath(MovePath parent, Direction direction, int size) {
+        this.parent = parent;
+        this.direction = direction;
+        this.size = size;
+    }
+
+    /**
+     * @param direction Direction to add.
+     * @return A new path of this path followed by the given Direction.
+     */
+    MovePath push(Direction direction) {
+        return new MovePath(this, direction, size + 1);
+    }
+
+    /**
+     * @return The path without its last Direction, or this path if it is empty.
+     */
+    MovePath pop() {
+        return parent != null ? parent : this;
+    }
+
+    /**
+     * @return The last Direction of this path, null if empty.
+     */
+    Direction last() {
+        return direction;
+    }
+
+    /**
+     * @return Number of Directions in this path.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return New list of the Directions in this path, first to last.
+     */
+    ArrayList<Direction> toList() {
+        Direction[] directions = new Direction[size];
+        MovePath path = this;
+        for (int i = size - 1; i >= 0; i--) {
+            directions[i] = path.direction;
+            path = path.parent;
+        }
+        ArrayList<Direction> list = new ArrayList<>(size);
+        for (Direction d : directions)
+            list.add(d);
+        return list;
+    }
+}
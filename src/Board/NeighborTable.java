@@ -0,0 +1,58 @@
+package Board;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directions that can be moved in from every position of a board size, worked out once for each size.
+ * Shared by every Board of that size, so finding the moves from a position never has to check the edges.
+ */
+final class NeighborTable {
+    private static final ConcurrentHashMap<Integer, NeighborTable> TABLES = new ConcurrentHashMap<>();
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Directions from each position, indexed by row * columns + column
+    private final Direction[][] straight, all;
+
+    private NeighborTable(int columns, int rows) {
+        straight = new Direction[columns * rows][];
+        all = new Direction[columns * rows][];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                straight[row * columns + column] = movesFrom(columns, rows, column, row, 4);
+                all[row * columns + column] = movesFrom(columns, rows, column, row, DIRECTIONS.length);
+            }
+        }
+    }
+
+    /**
+     * @param columns Columns of the board.
+     * @param rows    Rows of the board.
+     * @return The table for boards of the given size.
+     */
+    static NeighborTable of(int columns, int rows) {
+        return TABLES.computeIfAbsent(columns << 16 | rows, key -> new NeighborTable(columns, rows));
+    }
+
+    /**
+     * @param position Position, row * columns + column.
+     * @param numDirs  Number of Directions allowed, 4 for only straight moves.
+     * @return The Directions that stay on the board from the given position, in Direction order. Must not be changed.
+     */
+    Direction[] from(int position, int numDirs) {
+        return numDirs == 4 ? straight[position] : all[position];
+    }
+
+    private static Direction[] movesFrom(int columns, int rows, int column, int row, int numDirs) {
+        int count = 0;
+        Direction[] moves = new Direction[numDirs];
+        for (int j = 0; j < numDirs; j++) {
+            int newCol = column + DIRECTIONS[j].getColumnOffset();
+            int newRow = row + DIRECTIONS[j].getRowOffset();
+            if (newRow >= 0 && newRow < rows && newCol >= 0 && newCol < columns)
+                moves[count++] = DIRECTIONS[j];
+        }
+        Direction[] fitted = new Direction[count];
+        System.arraycopy(moves, 0, fitted, 0, count);
+        return fitted;
+    }
+}
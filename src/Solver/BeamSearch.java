@@ -0,0 +1,286 @@
+package Solver;
+
+import Board.Board;
+import Board.Direction;
+import Solver.Solver.SolutionEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Beam search over moves, one depth at a time.
+ * Only the newest boards (the frontier) are expanded at each depth, the best boards seen at any depth are kept separately.
+ * When run inside a ForkJoinPool, each expansion is split into chunks that run as their own tasks.
+ * If the solve has a deadline, once it passes the search stops and keeps the best boards found so far.
+ */
+class BeamSearch {
+    private static final int CHUNK_SIZE = 64;
+    private static final Comparator<SolutionEntry> BEST_FIRST = (o1, o2) -> Double.compare(o2.getScore(), o1.getScore());
+
+    private final SolveHandle handle;
+    private final Scorer scorer;
+    private final int numDirs, width, depth;
+    private final SolutionCollector collector;
+    private final int slot;
+    private final TranspositionTable table;
+
+    /**
+     * Creates a beam search with the given params.
+     *
+     * @param handle    Handle of the solve, searching stops when it is cancelled or its deadline passes.
+     * @param scorer    Scorer to score with.
+     * @param width     Max boards kept in the frontier, and in the best boards.
+     * @param depth     Max moves a board can have.
+     */
+    BeamSearch(SolveHandle handle, Scorer scorer, int width, int depth) {
+        this(handle, scorer, width, depth, null, null);
+    }
+
+    /**
+     * Creates a beam search with the given params, that offers its best boards to the collector after every depth.
+     * Boards in the frontier are recorded in the table, and children that reach a state already recorded with
+     * the same or fewer moves, by this search or any other search sharing the table, are pruned.
+     *
+     * @param handle    Handle of the solve, searching stops when it is cancelled or its deadline passes.
+     * @param scorer    Scorer to score with.
+     * @param width     Max boards kept in the frontier, and in the best boards.
+     * @param depth     Max moves a board can have.
+     * @param collector Collector to offer the best boards to, or null.
+     * @param table     Table of states reached so far, or null to not prune.
+     */
+    BeamSearch(SolveHandle handle, Scorer scorer, int width, int depth, SolutionCollector collector, TranspositionTable table) {
+        this.handle = handle;
+        this.scorer = scorer;
+        this.numDirs = handle.getNumDirs();
+        this.width = width;
+        this.depth = depth;
+        this.collector = collector;
+        this.slot = collector != null ? collector.newSlot() : -1;
+        this.table = table;
+    }
+
+    /**
+     * Searches from the given boards until the frontier is empty, every board has the max moves, or the deadline passes.
+     *
+     * @param start Boards to start from, these are expanded first.
+     * @return The best boards found, best first, or null if the solve was cancelled.
+     */
+    ArrayList<SolutionEntry> search(List<SolutionEntry> start) {
+        ArrayList<SolutionEntry> best = new ArrayList<>(start);
+        ArrayList<SolutionEntry> frontier = new ArrayList<>(start);
+        record(frontier);
+        while (!frontier.isEmpty() && !handle.isExpired()) {
+            frontier = expand(frontier);
+            if (frontier == null)
+                return null;
+            if (frontier.size() > width)
+                keepBest(frontier, width);
+            record(frontier);
+            best.addAll(frontier);
+            keepBest(best, width);
+            if (collector != null)
+                collector.offer(slot, best);
+        }
+        best.sort(BEST_FIRST);
+        return best;
+    }
+
+    /**
+     * Cuts the given entries down to the best count of them, in place, and sorts them best first.
+     * Ties keep the earlier entry, so the result is the same as sorting every entry and keeping the first count.
+     * The entries to keep are picked by selecting on their scores, so only the kept entries are ever sorted.
+     *
+     * @param entries Entries to cut down.
+     * @param count   Max entries to keep.
+     */
+    static void keepBest(ArrayList<SolutionEntry> entries, int count) {
+        int size = entries.size();
+        if (size > count) {
+            double[] scores = new double[size];
+            for (int i = 0; i < size; i++)
+                scores[i] = entries.get(i).getScore();
+            double threshold = select(scores, size - count);
+
+            int above = 0;
+            for (int i = 0; i < size; i++)
+                if (Double.compare(entries.get(i).getScore(), threshold) > 0)
+                    above++;
+            int ties = count - above;
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                SolutionEntry e = entries.get(i);
+                int c = Double.compare(e.getScore(), threshold);
+                if (c > 0 || (c == 0 && ties-- > 0))
+                    entries.set(kept++, e);
+            }
+            entries.subList(kept, size).clear();
+        }
+        entries.sort(BEST_FIRST);
+    }
+
+    /**
+     * Finds the value that would be at the given index if the values were sorted, moving the values around.
+     * Quickselect with a three way partition, since scores have lots of ties.
+     * Falls back to sorting the part that is left if it takes too many partitions.
+     *
+     * @param values Values to select from, in any order.
+     * @param k      Index in sorted order, lowest first.
+     * @return The value at index k in sorted order.
+     */
+    private static double select(double[] values, int k) {
+        int lo = 0;
+        int hi = values.length - 1;
+        int partitionsLeft = 2 * (Integer.SIZE - Integer.numberOfLeadingZeros(values.length));
+        while (lo < hi) {
+            if (partitionsLeft-- == 0) {
+                Arrays.sort(values, lo, hi + 1);
+                return values[k];
+            }
+            double pivot = medianOfThree(values[lo], values[(lo + hi) >>> 1], values[hi]);
+            // Values below the pivot end up before lt, values above it after gt
+            int lt = lo, i = lo, gt = hi;
+            while (i <= gt) {
+                int c = Double.compare(values[i], pivot);
+                if (c < 0)
+                    swap(values, lt++, i++);
+                else if (c > 0)
+                    swap(values, i, gt--);
+                else
+                    i++;
+            }
+            if (k < lt)
+                hi = lt - 1;
+            else if (k > gt)
+                lo = gt + 1;
+            else
+                return pivot;
+        }
+        return values[k];
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        if (Double.compare(a, b) > 0) {
+            double t = a;
+            a = b;
+            b = t;
+        }
+        if (Double.compare(b, c) > 0)
+            b = Double.compare(a, c) > 0 ? a : c;
+        return b;
+    }
+
+    private static void swap(double[] values, int a, int b) {
+        double t = values[a];
+        values[a] = values[b];
+        values[b] = t;
+    }
+
+    /**
+     * Records the state of every given board in the table.
+     * Only boards that made it into the frontier are recorded, so a state dropped by one search can still be kept by another.
+     *
+     * @param boards Boards to record.
+     */
+    private void record(List<SolutionEntry> boards) {
+        if (table == null)
+            return;
+        for (SolutionEntry e : boards) {
+            Board b = e.getBoard();
+            table.record(b.getHash(), b.getNumMoves());
+        }
+    }
+
+    /**
+     * Makes every child of the given boards, one move further.
+     *
+     * @param frontier Boards to expand.
+     * @return Every unique child, or null if the solve was cancelled.
+     */
+    private ArrayList<SolutionEntry> expand(ArrayList<SolutionEntry> frontier) {
+        ArrayList<SolutionEntry> children = ForkJoinTask.inForkJoinPool() && frontier.size() > CHUNK_SIZE
+                ? new ExpandTask(frontier, 0, frontier.size()).invoke()
+                : expand(frontier, 0, frontier.size());
+        if (children == null)
+            return null;
+
+        // Every child has the same number of moves, so only children of this depth can be duplicates
+        HashSet<SolutionEntry> seen = new HashSet<>();
+        ArrayList<SolutionEntry> unique = new ArrayList<>(children.size());
+        for (SolutionEntry e : children)
+            if (seen.add(e))
+                unique.add(e);
+        return unique;
+    }
+
+    /**
+     * Makes every child of part of the given boards, one move further.
+     *
+     * @param frontier Boards to expand.
+     * @param from     Index of the first board to expand, inclusive.
+     * @param to       Index of the last board to expand, exclusive.
+     * @return Every child, in order, or null if the solve was cancelled. Only the children made so far once the deadline passes.
+     */
+    private ArrayList<SolutionEntry> expand(List<SolutionEntry> frontier, int from, int to) {
+        ArrayList<SolutionEntry> children = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (handle.isCancelled())
+                return null;
+            if (handle.isExpired())
+                break;
+            // Moves are done and undone in place on the entry's own Board, only kept children are copied
+            SolutionEntry parent = frontier.get(i);
+            Board b = parent.getBoard();
+            if (b.getNumMoves() >= depth)
+                continue;
+            Direction lastDir = b.getLastMove();
+            for (Direction dirToMove : b.getMoveOptions(numDirs)) {
+                if (lastDir != null && lastDir.isOppositeTo(dirToMove))
+                    continue;
+                // Swapping two of the same Orb leaves the layout the same, so the child scores the same as its parent
+                boolean sameOrb = b.isSameOrbMove(dirToMove);
+                b.pushMove(dirToMove);
+                if (table == null || !table.isKnown(b.getHash(), b.getNumMoves()))
+                    children.add(new SolutionEntry(b, sameOrb ? parent.getScore() : scorer.score(b)));
+                b.popMove();
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Expands a range of the frontier, splitting it in half until it is at most CHUNK_SIZE boards.
+     * Each board is only ever expanded by one task, so moving its Board in place is safe.
+     */
+    private class ExpandTask extends RecursiveTask<ArrayList<SolutionEntry>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<SolutionEntry> frontier;
+        private final int from, to;
+
+        private ExpandTask(List<SolutionEntry> frontier, int from, int to) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ArrayList<SolutionEntry> compute() {
+            if (to - from <= CHUNK_SIZE)
+                return expand(frontier, from, to);
+            int middle = (from + to) >>> 1;
+            ExpandTask left = new ExpandTask(frontier, from, middle);
+            left.fork();
+            ArrayList<SolutionEntry> right = new ExpandTask(frontier, middle, to).compute();
+            ArrayList<SolutionEntry> children = left.join();
+            if (children == null || right == null)
+                return null;
+            children.addAll(right);
+            return children;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package Solver;
+
+import Solver.Solver.SolutionEntry;
+
+/**
+ * Result of an exact search, made by Solver.solveExact().
+ * Holds the shortest solution found, or why there is none.
+ */
+public class ExactResult {
+    /**
+     * How an exact search ended.
+     */
+    public enum Status {
+        // A solution with the fewest possible moves was found
+        FOUND,
+        // Every path up to the max moves was searched, and none of them reach the target
+        UNREACHABLE,
+        // The node budget ran out before a solution was found
+        BUDGET_EXHAUSTED,
+        // The search was cancelled
+        CANCELLED
+    }
+
+    private final Status status;
+    private final SolutionEntry solution;
+    private final int searchedMoves;
+    private final long nodes;
+
+    /**
+     * Creates a result with the given params.
+     *
+     * @param status        How the search ended.
+     * @param solution      The solution found, or null.
+     * @param searchedMoves Most moves that every path was searched up to.
+     * @param nodes         Boards visited by the search.
+     */
+    ExactResult(Status status, SolutionEntry solution, int searchedMoves, long nodes) {
+        this.status = status;
+        this.solution = solution;
+        this.searchedMoves = searchedMoves;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return How the search ended.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The solution with the fewest moves that reaches the target, or null if none was found.
+     */
+    public SolutionEntry getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return Most moves that every path was searched up to, no path this short or shorter reaches the target.
+     */
+    public int getSearchedMoves() {
+        return searchedMoves;
+    }
+
+    /**
+     * @return Boards visited by the search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return status + " after " + nodes + " nodes, searched " + searchedMoves + " moves" + (solution != null ? ", " + solution : "");
+    }
+}
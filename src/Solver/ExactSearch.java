@@ -0,0 +1,153 @@
+package Solver;
+
+import Board.Board;
+import Board.Direction;
+import Board.Match;
+import Solver.Solver.SolutionEntry;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Iterative deepening search for the fewest moves that make a target number of combos.
+ * Every start position is searched to a move limit as its own task, and the limit goes up by one until a solution
+ * is found, so the first solution found always has the fewest moves.
+ * The combo bound is only used as the target, it does not prune. A move can change the combos of the whole board
+ * through cascades, so the combos a board makes now do not rule out any number of moves left.
+ * Every path up to the limit is searched, only states already reached in the same or fewer moves are pruned,
+ * by a TranspositionTable for each limit. The work grows by about (directions - 1) times for each move,
+ * so this is only an exact answer for small boards, or boards solved in a few moves.
+ * On a full board that needs around 10 or more moves the node budget runs out first.
+ */
+class ExactSearch {
+    private final ForkJoinPool pool;
+    private final SolveHandle handle;
+    private final Scorer scorer;
+    private final int target;
+    private final long maxNodes;
+    private final long tableBytes;
+    private final AtomicLong nodes;
+    private volatile Board found;
+    private volatile boolean exhausted;
+    private TranspositionTable table;
+
+    /**
+     * Creates an exact search with the given params.
+     *
+     * @param pool       Pool to run each start position on.
+     * @param handle     Handle of the solve, searching stops when it is cancelled.
+     * @param scorer     Scorer to score the solution with.
+     * @param target     Combos a board has to make to be a solution.
+     * @param maxNodes   Max boards to visit before giving up.
+     * @param tableBytes Memory budget of the table for each limit.
+     */
+    ExactSearch(ForkJoinPool pool, SolveHandle handle, Scorer scorer, int target, long maxNodes, long tableBytes) {
+        this.pool = pool;
+        this.handle = handle;
+        this.scorer = scorer;
+        this.target = target;
+        this.maxNodes = maxNodes;
+        this.tableBytes = tableBytes;
+        this.nodes = new AtomicLong();
+    }
+
+    /**
+     * Searches from every start position of the given Board, up to the given moves.
+     *
+     * @param initialBoard Board to start with.
+     * @param maxMoves     Max moves a solution can have.
+     * @return The shortest solution, or why there is none.
+     */
+    ExactResult search(Board initialBoard, int maxMoves) {
+        ArrayList<Board> starts = new ArrayList<>();
+        for (int y = 0; y < initialBoard.getRows(); y++) {
+            for (int x = 0; x < initialBoard.getColumns(); x++) {
+                Board start = new Board(initialBoard);
+                start.setStart(x, y);
+                starts.add(start);
+            }
+        }
+        nodes.incrementAndGet();
+        if (isSolution(starts.get(0)))
+            return result(ExactResult.Status.FOUND, starts.get(0), 0);
+
+        for (int limit = 1; limit <= maxMoves; limit++) {
+            table = new TranspositionTable(tableBytes);
+            int movesLimit = limit;
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (Board start : starts) {
+                table.record(start.getHash(), 0);
+                tasks.add(pool.submit(() -> searchFrom(new Board(start), movesLimit)));
+            }
+            for (ForkJoinTask<?> task : tasks)
+                task.join();
+
+            if (found != null)
+                return result(ExactResult.Status.FOUND, found, limit - 1);
+            if (handle.isCancelled())
+                return result(ExactResult.Status.CANCELLED, null, limit - 1);
+            if (exhausted)
+                return result(ExactResult.Status.BUDGET_EXHAUSTED, null, limit - 1);
+        }
+        return result(ExactResult.Status.UNREACHABLE, null, maxMoves);
+    }
+
+    /**
+     * Searches every path from the given Board up to the limit, moving it in place.
+     * Only Boards with exactly limit moves are checked, every shorter state was checked by an earlier limit.
+     *
+     * @param b     Board to search from.
+     * @param limit Moves to search up to.
+     */
+    private void searchFrom(Board b, int limit) {
+        Direction lastDir = b.getLastMove();
+        for (Direction dirToMove : b.getMoveOptions(handle.getNumDirs())) {
+            if (found != null || exhausted || handle.isCancelled())
+                return;
+            if (lastDir != null && lastDir.isOppositeTo(dirToMove))
+                continue;
+            b.pushMove(dirToMove);
+            int moves = b.getNumMoves();
+            long hash = b.getHash();
+            if (!table.isKnown(hash, moves)) {
+                table.record(hash, moves);
+                if (nodes.incrementAndGet() > maxNodes)
+                    exhausted = true;
+                else if (moves < limit)
+                    searchFrom(b, limit);
+                else if (isSolution(b))
+                    setFound(b);
+            }
+            b.popMove();
+        }
+    }
+
+    /**
+     * Orbs exploded by bombs come back as a Match too, it is not a combo so it is not counted.
+     *
+     * @param b Board to check.
+     * @return true if the Board makes at least the target combos.
+     */
+    private boolean isSolution(Board b) {
+        int combos = 0;
+        for (Match m : b.evaluate().getMatches())
+            if (!m.isExplodedOrbs())
+                combos++;
+        return combos >= target;
+    }
+
+    /**
+     * Keeps a copy of the given Board as the solution, if no other search found one first.
+     */
+    private synchronized void setFound(Board b) {
+        if (found == null)
+            found = new Board(b);
+    }
+
+    private ExactResult result(ExactResult.Status status, Board solution, int searchedMoves) {
+        SolutionEntry entry = solution != null ? new SolutionEntry(solution, scorer.score(solution)) : null;
+        return new ExactResult(status, entry, searchedMoves, nodes.get());
+    }
+}
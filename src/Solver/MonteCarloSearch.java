@@ -0,0 +1,185 @@
+package Solver;
+
+import Board.Board;
+import Board.Direction;
+import Solver.Solver.SolutionEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Monte Carlo tree search over moves from a single start position.
+ * Each iteration walks down the tree picking moves by UCT, adds one new move to the tree,
+ * then makes random moves up to a random length and scores the Board it ends on.
+ * Every move keeps the best score of any playout through it rather than the average, since only the best path is kept.
+ * Scores are scaled by the lowest and highest scores seen, so UCT works with any Heuristic.
+ * A search is only ever run by one thread, with its own random, so searches from different start positions can run at once.
+ */
+class MonteCarloSearch {
+    // Weight of exploring moves that have been tried less, against moves that have scored well
+    private static final double EXPLORATION = 0.7;
+    private static final int SOLUTIONS_KEPT = 20;
+
+    private final SolveHandle handle;
+    private final Scorer scorer;
+    private final int numDirs, maxMoves, iterations;
+    private final SplittableRandom random;
+    private final Direction[] options;
+    private final PriorityQueue<SolutionEntry> best;
+    private final HashSet<SolutionEntry> kept;
+    private double minScore, maxScore;
+
+    /**
+     * Creates a tree search with the given params.
+     *
+     * @param handle     Handle of the solve, searching stops when it is cancelled or its deadline passes.
+     * @param scorer     Scorer to score with.
+     * @param maxMoves   Max moves a board can have.
+     * @param iterations Number of random playouts to do.
+     * @param random     Random to pick moves with, only used by this search.
+     */
+    MonteCarloSearch(SolveHandle handle, Scorer scorer, int maxMoves, int iterations, SplittableRandom random) {
+        this.handle = handle;
+        this.scorer = scorer;
+        this.numDirs = handle.getNumDirs();
+        this.maxMoves = maxMoves;
+        this.iterations = iterations;
+        this.random = random;
+        this.options = new Direction[numDirs];
+        this.best = new PriorityQueue<>(Comparator.comparingDouble(SolutionEntry::getScore));
+        this.kept = new HashSet<>();
+        this.minScore = Double.POSITIVE_INFINITY;
+        this.maxScore = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Searches from the given Board, which should have its start position set.
+     *
+     * @param start Board to start from.
+     * @return The best boards any playout ended on, best first, or null if the solve was cancelled.
+     */
+    ArrayList<SolutionEntry> search(Board start) {
+        Node root = new Node(null, numDirs);
+        for (int i = 0; i < iterations && !handle.isExpired(); i++) {
+            if (handle.isCancelled())
+                return null;
+            Board b = new Board(start);
+            Node node = select(root, b);
+            playout(b);
+            double score = scorer.score(b);
+            keep(b, score);
+            minScore = Math.min(minScore, score);
+            maxScore = Math.max(maxScore, score);
+            for (Node n = node; n != null; n = n.parent) {
+                n.visits++;
+                n.bestScore = Math.max(n.bestScore, score);
+            }
+        }
+        ArrayList<SolutionEntry> solutions = new ArrayList<>(best);
+        solutions.sort((o1, o2) -> Double.compare(o2.getScore(), o1.getScore()));
+        return solutions;
+    }
+
+    /**
+     * Walks down the tree from the root, moving the given Board along the way.
+     * Stops at the first move that is not in the tree yet, which is added, or at the max moves.
+     *
+     * @param root Root of the tree.
+     * @param b    Board at the root, moved in place.
+     * @return The node the Board ends at.
+     */
+    private Node select(Node root, Board b) {
+        Node node = root;
+        while (b.getNumMoves() < maxMoves) {
+            Direction lastDir = b.getLastMove();
+            Node next = null;
+            Direction nextDir = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Direction dirToMove : b.getMoveOptions(numDirs)) {
+                if (lastDir != null && lastDir.isOppositeTo(dirToMove))
+                    continue;
+                int j = dirToMove.ordinal();
+                Node child = node.children[j];
+                if (child == null) {
+                    node.children[j] = new Node(node, numDirs);
+                    b.pushMove(dirToMove);
+                    return node.children[j];
+                }
+                double value = uct(node, child);
+                if (value > bestValue) {
+                    bestValue = value;
+                    next = child;
+                    nextDir = dirToMove;
+                }
+            }
+            if (next == null)
+                return node;
+            b.pushMove(nextDir);
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * @param parent Node the child is under.
+     * @param child  Node to rate, visited at least once.
+     * @return UCT value of the child, its scaled best score plus its exploration bonus.
+     */
+    private double uct(Node parent, Node child) {
+        double range = maxScore - minScore;
+        double exploit = range > 0 ? (child.bestScore - minScore) / range : 0.5;
+        return exploit + EXPLORATION * Math.sqrt(Math.log(parent.visits) / child.visits);
+    }
+
+    /**
+     * Makes a random number of random moves on the given Board, never going back the way it just came.
+     *
+     * @param b Board to move.
+     */
+    private void playout(Board b) {
+        int length = random.nextInt(maxMoves - b.getNumMoves() + 1);
+        for (int i = 0; i < length; i++) {
+            Direction lastDir = b.getLastMove();
+            int numOptions = 0;
+            for (Direction dirToMove : b.getMoveOptions(numDirs))
+                if (lastDir == null || !lastDir.isOppositeTo(dirToMove))
+                    options[numOptions++] = dirToMove;
+            if (numOptions == 0)
+                return;
+            b.pushMove(options[random.nextInt(numOptions)]);
+        }
+    }
+
+    /**
+     * Keeps a copy of the given Board if it is one of the best SOLUTIONS_KEPT seen so far.
+     */
+    private void keep(Board b, double score) {
+        if (best.size() >= SOLUTIONS_KEPT && score <= best.peek().getScore())
+            return;
+        SolutionEntry entry = new SolutionEntry(b, score);
+        if (!kept.add(entry))
+            return;
+        best.add(entry);
+        if (best.size() > SOLUTIONS_KEPT)
+            kept.remove(best.poll());
+    }
+
+    /**
+     * A move in the tree, with the best score of every playout that went through it.
+     */
+    private static class Node {
+        private final Node parent;
+        private final Node[] children;
+        private int visits;
+        private double bestScore;
+
+        private Node(Node parent, int numDirs) {
+            this.parent = parent;
+            this.children = new Node[numDirs];
+            this.bestScore = Double.NEGATIVE_INFINITY;
+        }
+    }
+}
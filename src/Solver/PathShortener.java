@@ -0,0 +1,222 @@
+package Solver;
+
+import Board.Board;
+import Board.Direction;
+import Board.Orb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Shortens the path of a solution without changing the Board it ends on, or where the path starts and ends.
+ * First every loop is cut out, any part of the path that comes back to a state it was already in.
+ * Then each part of the path up to WINDOW moves long is replaced by the shortest path between the states at its ends.
+ * That path is found by iterative deepening, bounded by how many cells are still different and how far away the cursor is.
+ * Each part gives up after NODES_PER_WINDOW boards, so a path is only made as short as that budget can find.
+ */
+class PathShortener {
+    private static final int WINDOW = 12;
+    private static final int NODES_PER_WINDOW = 20_000;
+
+    private final SolveHandle handle;
+    private final int numDirs;
+
+    // State of the current window search
+    private Orb[] targetCells;
+    private int columns, targetX, targetY, foundMoves, nodes;
+    private Direction[] path;
+
+    /**
+     * Creates a shortener for the given solve.
+     *
+     * @param handle Handle of the solve, shortening stops when it is cancelled or out of time.
+     */
+    PathShortener(SolveHandle handle) {
+        this.handle = handle;
+        this.numDirs = handle.getNumDirs();
+    }
+
+    /**
+     * @param solution Board to shorten the path of, it is not changed.
+     * @return A Board with the same start, position and Orbs as the given Board, with a path no longer than it.
+     */
+    Board shorten(Board solution) {
+        // Undo every move to get back to the Board the path starts on
+        Board start = new Board(solution);
+        while (start.getNumMoves() > 0)
+            start.popMove();
+
+        ArrayList<Direction> moves = removeLoops(start, solution.getMoves());
+        int i = 0;
+        while (i + 1 < moves.size() && !handle.isCancelled() && !handle.isOutOfTime()) {
+            int end = Math.min(i + WINDOW, moves.size());
+            Board from = replay(start, moves.subList(0, i));
+            Board to = replay(from, moves.subList(i, end));
+            List<Direction> shorter = shortestPath(from, to, end - i - 1);
+            if (shorter != null) {
+                // Try the same window again, it now reaches further along the path
+                moves.subList(i, end).clear();
+                moves.addAll(i, shorter);
+            } else {
+                i++;
+            }
+        }
+
+        // Joining a shorter part in can make a move that just undoes the one before it
+        moves = removeLoops(start, moves);
+        if (moves.size() >= solution.getNumMoves())
+            return solution;
+        Board shortened = replay(start, moves);
+        return differingCells(shortened, solution) == 0 && shortened.getPosition().equals(solution.getPosition()) ? shortened : solution;
+    }
+
+    /**
+     * Cuts out every part of the given path that ends on a state seen earlier in the path.
+     *
+     * @param start Board the path starts from.
+     * @param moves Path to cut the loops out of.
+     * @return The path without any loops.
+     */
+    private static ArrayList<Direction> removeLoops(Board start, List<Direction> moves) {
+        Board b = new Board(start);
+        ArrayList<Direction> kept = new ArrayList<>(moves.size());
+        // Hash of the state after each kept move, and the number of kept moves for each hash
+        ArrayList<Long> hashes = new ArrayList<>();
+        HashMap<Long, Integer> seen = new HashMap<>();
+        hashes.add(b.getHash());
+        seen.put(b.getHash(), 0);
+        for (Direction d : moves) {
+            b.pushMove(d);
+            kept.add(d);
+            long hash = b.getHash();
+            Integer at = seen.get(hash);
+            if (at == null) {
+                seen.put(hash, kept.size());
+                hashes.add(hash);
+            } else {
+                while (kept.size() > at) {
+                    b.popMove();
+                    kept.remove(kept.size() - 1);
+                }
+                while (hashes.size() > at + 1)
+                    seen.remove(hashes.remove(hashes.size() - 1));
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Iterative deepening search for the shortest path from one state to another.
+     *
+     * @param from     Board to start from.
+     * @param to       Board with the Orbs and position to reach.
+     * @param maxMoves Most moves the path can have.
+     * @return The shortest path found, or null if there is none of maxMoves or less within the node budget.
+     */
+    private List<Direction> shortestPath(Board from, Board to, int maxMoves) {
+        columns = to.getColumns();
+        targetCells = new Orb[to.getRows() * columns];
+        for (int row = 0; row < to.getRows(); row++)
+            for (int column = 0; column < columns; column++)
+                targetCells[row * columns + column] = to.orbAt(row, column);
+        targetX = to.getPosition().x;
+        targetY = to.getPosition().y;
+        path = new Direction[Math.max(maxMoves, 0)];
+        nodes = 0;
+
+        int x = from.getPosition().x;
+        int y = from.getPosition().y;
+        int diff = differingCells(from, to);
+        for (int limit = bound(from, diff, x, y); limit <= maxMoves && nodes <= NODES_PER_WINDOW; limit++) {
+            if (search(new Board(from), x, y, diff, 0, limit, null)) {
+                ArrayList<Direction> found = new ArrayList<>(foundMoves);
+                for (int j = 0; j < foundMoves; j++)
+                    found.add(path[j]);
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches every path from the given Board up to the limit, moving it in place.
+     *
+     * @param b     Board to search from.
+     * @param x     Column of the cursor.
+     * @param y     Row of the cursor.
+     * @param diff  Number of cells that are different from the target.
+     * @param moves Moves made so far.
+     * @param limit Most moves to make.
+     * @param last  Last move made, or null.
+     * @return true if the target was reached, the path to it is in path.
+     */
+    private boolean search(Board b, int x, int y, int diff, int moves, int limit, Direction last) {
+        if (diff == 0 && x == targetX && y == targetY) {
+            foundMoves = moves;
+            return true;
+        }
+        if (moves + bound(b, diff, x, y) > limit || ++nodes > NODES_PER_WINDOW)
+            return false;
+        for (Direction dirToMove : b.getMoveOptions(numDirs)) {
+            if (last != null && last.isOppositeTo(dirToMove))
+                continue;
+            int nx = x + dirToMove.getColumnOffset();
+            int ny = y + dirToMove.getRowOffset();
+            Orb moving = b.orbAt(y, x);
+            Orb swapped = b.orbAt(ny, nx);
+            Orb here = targetCells[y * columns + x];
+            Orb there = targetCells[ny * columns + nx];
+            int change = (swapped != here ? 1 : 0) + (moving != there ? 1 : 0)
+                    - (moving != here ? 1 : 0) - (swapped != there ? 1 : 0);
+            b.pushMove(dirToMove);
+            path[moves] = dirToMove;
+            if (search(b, nx, ny, diff + change, moves + 1, limit, dirToMove))
+                return true;
+            b.popMove();
+        }
+        return false;
+    }
+
+    /**
+     * A move only changes the cell the cursor is on and the cell it moves into, so every different cell
+     * other than the one under the cursor has to be moved into at least once. The cursor also moves one cell a move.
+     *
+     * @param b    Board the cursor is on.
+     * @param diff Number of cells that are different from the target.
+     * @param x    Column of the cursor.
+     * @param y    Row of the cursor.
+     * @return Fewest moves that could reach the target from the given state.
+     */
+    private int bound(Board b, int diff, int x, int y) {
+        int underCursor = b.orbAt(y, x) != targetCells[y * columns + x] ? 1 : 0;
+        int dx = Math.abs(x - targetX);
+        int dy = Math.abs(y - targetY);
+        int cursor = numDirs == 8 ? Math.max(dx, dy) : dx + dy;
+        return Math.max(diff - underCursor, cursor);
+    }
+
+    /**
+     * @return Number of cells that have a different Orb in the two Boards.
+     */
+    private static int differingCells(Board a, Board b) {
+        int diff = 0;
+        for (int row = 0; row < a.getRows(); row++)
+            for (int column = 0; column < a.getColumns(); column++)
+                if (a.orbAt(row, column) != b.orbAt(row, column))
+                    diff++;
+        return diff;
+    }
+
+    /**
+     * @param from  Board to start from, it is not changed.
+     * @param moves Moves to make.
+     * @return A copy of the Board with the given moves made.
+     */
+    private static Board replay(Board from, List<Direction> moves) {
+        Board b = new Board(from);
+        for (Direction d : moves)
+            b.pushMove(d);
+        return b;
+    }
+}
@@ -0,0 +1,290 @@
+package Solver;
+
+import Board.Board;
+import Board.Match;
+import Board.Orb;
+
+import java.util.List;
+
+/**
+ * A Heuristic compiled into the scoring for its ComboType, made once per solve with of().
+ * Each ComboType has its own subclass, with its weights and the Heuristic's values read once up front,
+ * so scoring a Board does not look anything up or switch on the ComboType.
+ * Every ComboType sums its score the same way, the matches made first, then the type, then bombs.
+ * The Heuristic is copied, changing it afterwards does not change the Scorer.
+ */
+abstract class Scorer {
+    private static final double BOMB_WEIGHT = 5;
+
+    final ComboType comboType;
+    final Orb primaryOrb;
+    final int minConnectedOrbs, minRowOrbs;
+
+    private Scorer(Heuristic heuristic) {
+        this.comboType = heuristic.getComboType();
+        this.primaryOrb = heuristic.getPrimaryOrb();
+        this.minConnectedOrbs = heuristic.getMinConnectedOrbs();
+        this.minRowOrbs = heuristic.getMinRowOrbs();
+    }
+
+    /**
+     * @param heuristic Heuristic to compile.
+     * @return A Scorer for the Heuristic's ComboType and values.
+     */
+    static Scorer of(Heuristic heuristic) {
+        switch (heuristic.getComboType()) {
+            case COMBO:
+                return new ComboScorer(heuristic);
+            case ROW:
+                return new RowScorer(heuristic);
+            case SPARKLE:
+                return new SparkleScorer(heuristic);
+            case CROSS:
+                return new CrossScorer(heuristic);
+            default:
+                return new TpaScorer(heuristic);
+        }
+    }
+
+    /**
+     * @param board Board to score.
+     * @return A score for this Board.
+     */
+    abstract double score(Board board);
+
+    /**
+     * @return The ComboType this Scorer scores for.
+     */
+    ComboType getComboType() {
+        return comboType;
+    }
+
+    /**
+     * @param board Board to check.
+     * @return Negative the number of bombs if there are 3 or more and not all of them are matched, otherwise 0.
+     */
+    static double bombScore(Board board) {
+        double bombScore = 0;
+        int bombsMatched = board.getInPlaceMatchesFor(Orb.BOMB).size();
+        int numBombs = board.orbCount(Orb.BOMB);
+        if (numBombs >= 3 && bombsMatched < numBombs)
+            bombScore -= numBombs;
+        return bombScore;
+    }
+
+    /**
+     * Scores how close a Board is to making every combo it can.
+     */
+    private static final class ComboScorer extends Scorer {
+        private static final double COMBO_WEIGHT = 4.0;
+        private static final double TYPE_WEIGHT = 0.5;
+
+        private ComboScorer(Heuristic heuristic) {
+            super(heuristic);
+        }
+
+        @Override
+        double score(Board board) {
+            List<Match> matches = board.evaluate().getMatches();
+            int matchesMade = matches.size();
+            double score = 0;
+            double matchesMadeScore = matchesMade;
+            double typeScore = 0;
+            double bombScore = bombScore(board);
+
+            int maxCombos = board.maxPossibleCombos();
+            if (matchesMade + 2 == maxCombos) {
+                matchesMadeScore += 1.25 * matchesMade;
+            } else if (matchesMade + 1 == maxCombos) {
+                matchesMadeScore += 1.5 * matchesMade;
+            } else if (matchesMade == maxCombos) {
+                matchesMadeScore += 2.0 * matchesMade;
+            } else {
+                matchesMadeScore -= matchesMade / 2.0;
+            }
+
+            for (Match m : matches) {
+                if (!m.isExplodedOrbs()) {
+                    int numOrbs = m.getNumOrbs();
+                    matchesMadeScore += numOrbs;
+                    if (numOrbs >= minConnectedOrbs)
+                        matchesMadeScore += 2;
+                    matchesMadeScore += numOrbs;
+                    if (numOrbs > 3)
+                        matchesMadeScore -= numOrbs;
+                }
+            }
+
+            score += matchesMadeScore * COMBO_WEIGHT;
+            // Always 0, still added so the sum is done the same way as every other ComboType
+            score += typeScore * TYPE_WEIGHT;
+            score += bombScore * BOMB_WEIGHT;
+            return score;
+        }
+    }
+
+    /**
+     * Scores 4 Orb matches, of the primary Orb most of all.
+     */
+    private static final class TpaScorer extends Scorer {
+        private static final double COMBO_WEIGHT = 0.5;
+        private static final double TYPE_WEIGHT = 0.5;
+
+        private TpaScorer(Heuristic heuristic) {
+            super(heuristic);
+        }
+
+        @Override
+        double score(Board board) {
+            List<Match> matches = board.evaluate().getMatches();
+            double score = 0;
+            double matchesMadeScore = matches.size();
+            double typeScore = 0;
+            double bombScore = bombScore(board);
+
+            for (Match m : matches) {
+                if (!m.isExplodedOrbs()) {
+                    int numOrbs = m.getNumOrbs();
+                    matchesMadeScore += numOrbs;
+                    if (numOrbs >= minConnectedOrbs)
+                        matchesMadeScore += 2;
+                    if (numOrbs == 4) {
+                        if (m.getOrbType() == primaryOrb)
+                            typeScore += 2;
+                        else
+                            typeScore += 1;
+                    }
+                }
+            }
+
+            score += matchesMadeScore * COMBO_WEIGHT;
+            score += typeScore * TYPE_WEIGHT;
+            score += bombScore * BOMB_WEIGHT;
+            return score;
+        }
+    }
+
+    /**
+     * Scores full rows of the primary Orb, and takes away for primary Orbs matched outside of rows.
+     */
+    private static final class RowScorer extends Scorer {
+        private static final double COMBO_WEIGHT = 0.1;
+        private static final double TYPE_WEIGHT = 4.0;
+
+        private RowScorer(Heuristic heuristic) {
+            super(heuristic);
+        }
+
+        @Override
+        double score(Board board) {
+            List<Match> matches = board.evaluate().getMatches();
+            double score = 0;
+            double matchesMadeScore = matches.size();
+            double typeScore = 0;
+            double bombScore = bombScore(board);
+            int columns = board.getColumns();
+            int primaryCount = board.orbCount(primaryOrb);
+
+            int rows = 0;
+            for (Match m : matches) {
+                if (!m.isExplodedOrbs()) {
+                    int numOrbs = m.getNumOrbs();
+                    matchesMadeScore += numOrbs;
+                    if (numOrbs >= minConnectedOrbs)
+                        matchesMadeScore += 2;
+                    if (m.getOrbType() == primaryOrb) {
+                        if (m.isRow(columns)) {
+                            typeScore += numOrbs;
+                            rows++;
+                            if (numOrbs < minRowOrbs)
+                                typeScore -= 2;
+                        } else if (numOrbs > primaryCount % 6) {
+                            typeScore -= 4;
+                        }
+                    }
+                }
+            }
+            if (rows < primaryCount / 6)
+                typeScore -= (primaryCount / 6);
+
+            score += matchesMadeScore * COMBO_WEIGHT;
+            score += typeScore * TYPE_WEIGHT;
+            score += bombScore * BOMB_WEIGHT;
+            return score;
+        }
+    }
+
+    /**
+     * Scores 5 Orb matches of the primary Orb.
+     */
+    private static final class SparkleScorer extends Scorer {
+        private static final double COMBO_WEIGHT = 0.5;
+        private static final double TYPE_WEIGHT = 3.0;
+
+        private SparkleScorer(Heuristic heuristic) {
+            super(heuristic);
+        }
+
+        @Override
+        double score(Board board) {
+            List<Match> matches = board.evaluate().getMatches();
+            double score = 0;
+            double matchesMadeScore = matches.size();
+            double typeScore = 0;
+            double bombScore = bombScore(board);
+
+            for (Match m : matches) {
+                if (!m.isExplodedOrbs()) {
+                    int numOrbs = m.getNumOrbs();
+                    matchesMadeScore += numOrbs;
+                    if (numOrbs >= minConnectedOrbs)
+                        matchesMadeScore += 2;
+                    if (numOrbs == 5 && m.getOrbType() == primaryOrb)
+                        typeScore += 2;
+                }
+            }
+
+            score += matchesMadeScore * COMBO_WEIGHT;
+            score += typeScore * TYPE_WEIGHT;
+            score += bombScore * BOMB_WEIGHT;
+            return score;
+        }
+    }
+
+    /**
+     * Scores crosses of the primary Orb.
+     */
+    private static final class CrossScorer extends Scorer {
+        private static final double COMBO_WEIGHT = 0.5;
+        private static final double TYPE_WEIGHT = 2.0;
+
+        private CrossScorer(Heuristic heuristic) {
+            super(heuristic);
+        }
+
+        @Override
+        double score(Board board) {
+            List<Match> matches = board.evaluate().getMatches();
+            double score = 0;
+            double matchesMadeScore = matches.size();
+            double typeScore = 0;
+            double bombScore = bombScore(board);
+
+            for (Match m : matches) {
+                if (!m.isExplodedOrbs()) {
+                    int numOrbs = m.getNumOrbs();
+                    matchesMadeScore += numOrbs;
+                    if (numOrbs >= minConnectedOrbs)
+                        matchesMadeScore += 2;
+                    if (m.isCross() && m.getOrbType() == primaryOrb)
+                        typeScore += 2;
+                }
+            }
+
+            score += matchesMadeScore * COMBO_WEIGHT;
+            score += typeScore * TYPE_WEIGHT;
+            score += bombScore * BOMB_WEIGHT;
+            return score;
+        }
+    }
+}
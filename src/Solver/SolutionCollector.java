@@ -0,0 +1,75 @@
+package Solver;
+
+import Solver.Solver.SolutionEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gathers the best solutions of every search in a solve, and passes them to a SolutionListener as they improve.
+ * Each search has its own slot that it replaces after every depth.
+ */
+class SolutionCollector {
+    // Number of solutions taken from each search for every update, keeps updates quick to simplify
+    private static final int SOLUTIONS_PER_SLOT = 20;
+
+    private final Solver solver;
+    private final SolutionListener listener;
+    private final ArrayList<List<SolutionEntry>> slots;
+    private double bestScore;
+
+    /**
+     * Creates a collector that updates the given listener.
+     *
+     * @param solver   Solver used to simplify solutions.
+     * @param listener Listener to update.
+     */
+    SolutionCollector(Solver solver, SolutionListener listener) {
+        this.solver = solver;
+        this.listener = listener;
+        this.slots = new ArrayList<>();
+        this.bestScore = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return A new slot for a search to offer its solutions to.
+     */
+    synchronized int newSlot() {
+        slots.add(new ArrayList<>());
+        return slots.size() - 1;
+    }
+
+    /**
+     * Replaces the solutions of the given slot, and updates the listener if the best score improved.
+     * Solutions are copied, so the search can keep moving its Boards.
+     *
+     * @param slot Slot of the search.
+     * @param best Best solutions of the search, best first.
+     */
+    void offer(int slot, List<SolutionEntry> best) {
+        ArrayList<SolutionEntry> top = new ArrayList<>();
+        for (int i = 0; i < best.size() && i < SOLUTIONS_PER_SLOT; i++)
+            top.add(new SolutionEntry(best.get(i)));
+        synchronized (this) {
+            slots.set(slot, top);
+            if (top.isEmpty() || top.get(0).getScore() <= bestScore)
+                return;
+            bestScore = top.get(0).getScore();
+            ArrayList<SolutionEntry> all = new ArrayList<>();
+            for (List<SolutionEntry> s : slots)
+                all.addAll(s);
+            ArrayList<SolutionEntry> solutions = solver.simplifySolutions(all);
+            solutions.sort((o1, o2) -> Double.compare(o2.getScore(), o1.getScore()));
+            listener.solutionsFound(solutions);
+        }
+    }
+
+    /**
+     * Updates the listener with the final solutions of the solve.
+     *
+     * @param solutions Final solutions, best first.
+     */
+    synchronized void finish(ArrayList<SolutionEntry> solutions) {
+        listener.solutionsFound(new ArrayList<>(solutions));
+    }
+}
@@ -0,0 +1,16 @@
+package Solver;
+
+import java.util.ArrayList;
+
+/**
+ * Listens to a solve as it runs, getting the best solutions found so far whenever they improve.
+ */
+public interface SolutionListener {
+    /**
+     * Called from a solving thread whenever the best solutions so far improve, and once more with the final solutions.
+     * Should return quickly, as the search waits for it.
+     *
+     * @param solutions Best solutions found so far, best first. The list and its Boards are not used by the Solver again.
+     */
+    void solutionsFound(ArrayList<Solver.SolutionEntry> solutions);
+}
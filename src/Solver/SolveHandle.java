@@ -0,0 +1,138 @@
+package Solver;
+
+import Solver.Solver.SolutionEntry;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle to a single solve, made by Solver.submit().
+ * Every solve has its own handle, so cancelling one never stops any other solve running on the same Solver.
+ * The settings a solve depends on are taken when it starts, and stay the same for the whole solve.
+ */
+public class SolveHandle implements Future<ArrayList<SolutionEntry>> {
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final int numDirs;
+    private final long searchDeadline, deadline;
+    private final CompletableFuture<ArrayList<SolutionEntry>> result;
+
+    /**
+     * Creates a handle for a solve with the given settings.
+     *
+     * @param numDirs  Number of Directions to move in, 4 or 8.
+     * @param deadline System.nanoTime() to stop searching at, or NO_DEADLINE.
+     */
+    SolveHandle(int numDirs, long deadline) {
+        this(numDirs, deadline, deadline);
+    }
+
+    /**
+     * Creates a handle for a solve with the given settings, that stops searching before the whole solve has to be done.
+     *
+     * @param numDirs        Number of Directions to move in, 4 or 8.
+     * @param searchDeadline System.nanoTime() to stop searching at, or NO_DEADLINE.
+     * @param deadline       System.nanoTime() the whole solve should be done by, or NO_DEADLINE.
+     */
+    SolveHandle(int numDirs, long searchDeadline, long deadline) {
+        this.numDirs = numDirs;
+        this.searchDeadline = searchDeadline;
+        this.deadline = deadline;
+        this.result = new CompletableFuture<>();
+    }
+
+    /**
+     * @return Number of Directions the solve moves in.
+     */
+    int getNumDirs() {
+        return numDirs;
+    }
+
+    /**
+     * @return true if the solve has a deadline, and it is time to stop searching.
+     */
+    boolean isExpired() {
+        return searchDeadline != NO_DEADLINE && System.nanoTime() - searchDeadline >= 0;
+    }
+
+    /**
+     * @return true if the solve has a deadline, and the time for the whole solve is up.
+     */
+    boolean isOutOfTime() {
+        return deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Finishes the solve with the given solutions, does nothing if it was cancelled.
+     *
+     * @param solutions Solutions found, best first.
+     */
+    void complete(ArrayList<SolutionEntry> solutions) {
+        result.complete(solutions);
+    }
+
+    /**
+     * Finishes the solve with the given error, does nothing if it was cancelled.
+     *
+     * @param error Error the solve failed with.
+     */
+    void fail(Throwable error) {
+        result.completeExceptionally(error);
+    }
+
+    /**
+     * Stops the solve. Searches see the cancel at their next board and finish early.
+     * A solve that has already finished is not changed, and does not count as cancelled.
+     *
+     * @param mayInterruptIfRunning Unused, searches are never interrupted, they check for the cancel themselves.
+     * @return false if the solve had already finished.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return result.cancel(false);
+    }
+
+    /**
+     * @return true if the solve was cancelled before it finished.
+     */
+    @Override
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    /**
+     * @return true if the solve has finished, failed, or was cancelled.
+     */
+    @Override
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    @Override
+    public ArrayList<SolutionEntry> get() throws InterruptedException, ExecutionException {
+        return result.get();
+    }
+
+    @Override
+    public ArrayList<SolutionEntry> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return result.get(timeout, unit);
+    }
+
+    /**
+     * Waits for the solve to finish.
+     *
+     * @return List of SolutionEntry, best first, or null if the solve was cancelled.
+     */
+    public ArrayList<SolutionEntry> getSolutions() {
+        try {
+            return result.join();
+        } catch (CancellationException e) {
+            return null;
+        }
+    }
+}
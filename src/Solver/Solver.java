@@ -6,33 +6,76 @@ import Board.Match;
 import Board.Orb;
 
 import java.lang.reflect.Array;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 
 /**
  * Created by Iggie on 6/22/2017.
  */
 public class Solver {
-    private boolean solving = false;
-    private int numDirs = 4;
+    // Shared by every Solver made without a pool, so threads are made once instead of every solve
+    private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    // Memory for the transposition table of each solve, room for about 500k states
+    private static final long TABLE_BYTES = 4 << 20;
+    // Every start position is searched this deep first to rank them, see triageWidth() for how wide
+    private static final int TRIAGE_DEPTH = 4;
+    // Share of a time limit kept back from searching, for simplifying, shortening and sorting the solutions
+    private static final int FINISH_PERCENT = 10;
+
+    private final ForkJoinPool pool;
+    // Every solve that has not finished yet, so stopSolving() can cancel all of them
+    private final Set<SolveHandle> active = ConcurrentHashMap.newKeySet();
+    private volatile int numDirs = 4;
+    private volatile boolean triage;
 
     /**
-     * Stops any current solving that might be occurring.
+     * Creates a Solver that runs on a pool shared by all Solvers, with a thread per available processor.
+     */
+    public Solver() {
+        this(DEFAULT_POOL);
+    }
+
+    /**
+     * Creates a Solver that runs on the given pool.
+     *
+     * @param pool Pool to run searches on, reused for every solve.
+     */
+    public Solver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Cancels every solve currently running on this Solver.
+     * Use SolveHandle.cancel() to cancel a single solve.
      */
     public void stopSolving() {
-        solving = false;
+        for (SolveHandle handle : active)
+            handle.cancel(false);
     }
 
     /**
      * Sets the allowed amount of directions, either 4(straight) or 8(diagonals)
+     * Solves that are already running keep the amount they started with.
      *
      * @param dirs Number of Directions to go in.
      */
     public void setNumDirs(int dirs) {
-        if (!solving)
-            numDirs = dirs == 4 || dirs == 8 ? dirs : numDirs;
+        numDirs = dirs == 4 || dirs == 8 ? dirs : numDirs;
+    }
+
+    /**
+     * Sets if solve() runs a short search from every start position first, off by default.
+     * Start positions that score below the median are then dropped, and the rest share the width by their score.
+     * Solves that are already running keep the setting they started with.
+     *
+     * @param triage true to triage start positions.
+     */
+    public void setTriage(boolean triage) {
+        this.triage = triage;
     }
 
     /**
@@ -56,56 +99,250 @@ public class Solver {
      * @return List of SolutionEntry, which each contain a Board and a score.
      */
     public ArrayList<SolutionEntry> solve(Board initialBoard, Heuristic heuristic, int maxMoves, int pathScale) {
-        if (solving)
-            return null;
-        solving = true;
-        if ((heuristic.getComboType() == ComboType.ROW || initialBoard.orbCount().get(Orb.BOMB) >= 3) && maxMoves < 50) {
-            maxMoves = 50;
+        return solve(initialBoard, heuristic, maxMoves, pathScale, null, null);
+    }
+
+    /**
+     * Solver with each of the given params, that updates the listener with the best solutions so far as they improve.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @param maxMoves     Max moves to do.
+     * @param pathScale    Path scalar. Decides how many total solutions to keep.
+     * @param listener     Listener to update while solving, or null.
+     * @return List of SolutionEntry, which each contain a Board and a score.
+     */
+    public ArrayList<SolutionEntry> solve(Board initialBoard, Heuristic heuristic, int maxMoves, int pathScale, SolutionListener listener) {
+        return solve(initialBoard, heuristic, maxMoves, pathScale, listener, null);
+    }
+
+    /**
+     * Basic solver with the given Board and Heuristic, that finishes within about the time limit.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @param timeLimit    Time the whole solve should take.
+     * @return List of SolutionEntry of the best solutions found in time, which each contain a Board and a score.
+     */
+    public ArrayList<SolutionEntry> solve(Board initialBoard, Heuristic heuristic, Duration timeLimit) {
+        return solve(initialBoard, heuristic, 20, 100, null, timeLimit);
+    }
+
+    /**
+     * Solver with each of the given params, that finishes within about the time limit.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @param maxMoves     Max moves to do.
+     * @param pathScale    Path scalar. Decides how many total solutions to keep.
+     * @param timeLimit    Time the whole solve should take.
+     * @return List of SolutionEntry of the best solutions found in time, which each contain a Board and a score.
+     */
+    public ArrayList<SolutionEntry> solve(Board initialBoard, Heuristic heuristic, int maxMoves, int pathScale, Duration timeLimit) {
+        return solve(initialBoard, heuristic, maxMoves, pathScale, null, timeLimit);
+    }
+
+    /**
+     * Solver with each of the given params, waits for the solve to finish.
+     * Updates the listener with the best solutions so far as they improve, and finishes within about the time limit.
+     * The time limit covers the whole solve, searching stops early to leave time to simplify and sort the solutions.
+     * Paths are only shortened while there is time left.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @param maxMoves     Max moves to do.
+     * @param pathScale    Path scalar. Decides how many total solutions to keep.
+     * @param listener     Listener to update while solving, or null.
+     * @param timeLimit    Time the whole solve should take, or null to search until done.
+     * @return List of SolutionEntry, which each contain a Board and a score, or null if the solve was cancelled.
+     */
+    public ArrayList<SolutionEntry> solve(Board initialBoard, Heuristic heuristic, int maxMoves, int pathScale, SolutionListener listener, Duration timeLimit) {
+        return submit(initialBoard, heuristic, maxMoves, pathScale, listener, timeLimit).getSolutions();
+    }
+
+    /**
+     * Starts solving the given Board with the given Heuristic, without waiting for it to finish.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @return Handle of the solve, to get the solutions from or cancel it with.
+     */
+    public SolveHandle submit(Board initialBoard, Heuristic heuristic) {
+        return submit(initialBoard, heuristic, 20, 100, null, null);
+    }
+
+    /**
+     * Starts solving with each of the given params, without waiting for it to finish.
+     * Any number of solves can run at once, each one is independent of the others.
+     * The Board is copied, so it can be changed once this returns.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @param maxMoves     Max moves to do.
+     * @param pathScale    Path scalar. Decides how many total solutions to keep.
+     * @param listener     Listener to update while solving, or null.
+     * @param timeLimit    Time the whole solve should take, or null to search until done.
+     * @return Handle of the solve, to get the solutions from or cancel it with.
+     */
+    public SolveHandle submit(Board initialBoard, Heuristic heuristic, int maxMoves, int pathScale, SolutionListener listener, Duration timeLimit) {
+        SolveHandle handle;
+        if (timeLimit != null) {
+            long now = System.nanoTime();
+            long limit = timeLimit.toNanos();
+            handle = new SolveHandle(numDirs, now + limit - limit / 100 * FINISH_PERCENT, now + limit);
+        } else {
+            handle = new SolveHandle(numDirs, SolveHandle.NO_DEADLINE);
         }
+        Board board = new Board(initialBoard);
+        Scorer scorer = Scorer.of(heuristic);
+        boolean triageStarts = triage;
+        return start(handle, () -> solveBoard(handle, board, scorer, maxMoves, pathScale, listener, triageStarts));
+    }
 
-        List<SolutionEntry> syncSolutions = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * Runs the given solve on the pool, finishing the handle with its solutions.
+     *
+     * @param handle Handle of the solve.
+     * @param solve  Solve to run.
+     * @return The given handle.
+     */
+    private SolveHandle start(SolveHandle handle, Supplier<ArrayList<SolutionEntry>> solve) {
+        active.add(handle);
+        pool.execute(() -> {
+            try {
+                handle.complete(solve.get());
+            } catch (Throwable t) {
+                handle.fail(t);
+            } finally {
+                active.remove(handle);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Solves the given Board from every start position, for the given handle.
+     * Without triage, each row of start positions is searched by its own beam.
+     *
+     * @return List of SolutionEntry, best first, or null if the solve was cancelled.
+     */
+    private ArrayList<SolutionEntry> solveBoard(SolveHandle handle, Board initialBoard, Scorer scorer, int maxMoves, int pathScale, SolutionListener listener, boolean triage) {
+        maxMoves = maxMovesFor(initialBoard, scorer, maxMoves);
 
         int rows = initialBoard.getRows();
         int cols = initialBoard.getColumns();
         int solutionsToKeep = cols * pathScale;
+        SolutionCollector collector = listener != null ? new SolutionCollector(this, listener) : null;
+        // Shared by every search, so a state reached from one start position is not searched again from another
+        TranspositionTable table = new TranspositionTable(TABLE_BYTES);
+
+        ArrayList<ForkJoinTask<ArrayList<SolutionEntry>>> tasks = new ArrayList<>();
+        if (!triage) {
+            // Each row of start positions is its own task, and each task splits its expansions into more tasks
+            for (int y = 0; y < rows; y++) {
+                ArrayList<SolutionEntry> startingBoards = new ArrayList<>(cols);
+                for (int x = 0; x < cols; x++) {
+                    if (handle.isCancelled())
+                        return null;
+                    Board boardToAdd = new Board(initialBoard);
+                    boardToAdd.setStart(x, y);
+                    startingBoards.add(new SolutionEntry(boardToAdd, scorer.score(boardToAdd)));
+                }
+                BeamSearch search = new BeamSearch(handle, scorer, solutionsToKeep, maxMoves, collector, table);
+                tasks.add(pool.submit(() -> search.search(startingBoards)));
+            }
+            return collectSolutions(handle, tasks, collector);
+        }
 
-        ArrayList<Thread> threads = new ArrayList<>();
-
+        ArrayList<SolutionEntry> starts = new ArrayList<>(rows * cols);
         for (int y = 0; y < rows; y++) {
-            ArrayList<SolutionEntry> startingBoards = new ArrayList<>(solutionsToKeep);
             for (int x = 0; x < cols; x++) {
-                if (!solving)
-                    return null;
                 Board boardToAdd = new Board(initialBoard);
                 boardToAdd.setStart(x, y);
-                startingBoards.add(new SolutionEntry(boardToAdd, computeScore(boardToAdd, heuristic)));
+                starts.add(new SolutionEntry(boardToAdd, scorer.score(boardToAdd)));
             }
-            int moves = maxMoves;
-            Thread t = new Thread(() -> {
-                ArrayList<SolutionEntry> solutionsFound = solve_sub(startingBoards, heuristic, moves, solutionsToKeep);
-                if (solutionsFound != null) {
-                    synchronized (syncSolutions) {
-                        syncSolutions.addAll(solutionsFound);
-                    }
-                }
-            });
-            if (!solving)
+        }
+        // Triage solutions are real solutions too, so they are kept with the rest
+        ArrayList<ForkJoinTask<ArrayList<SolutionEntry>>> triageTasks = triage(handle, starts, scorer, collector);
+        double[] promise = new double[starts.size()];
+        for (int i = 0; i < promise.length; i++) {
+            ArrayList<SolutionEntry> found = triageTasks.get(i).join();
+            if (found == null)
                 return null;
-            threads.add(t);
-            t.start();
+            promise[i] = found.isEmpty() ? starts.get(i).getScore() : found.get(0).getScore();
         }
-        for (int i = 0; i < threads.size(); i++)
-            try {
-                threads.get(i).join();
-            } catch (InterruptedException ignored) {
+        tasks.addAll(triageTasks);
+
+        // Start positions that scored below the median are dropped, every start that ties with a kept one is kept
+        double[] sorted = promise.clone();
+        Arrays.sort(sorted);
+        double threshold = sorted[(sorted.length - 1) / 2];
+        double best = sorted[sorted.length - 1];
+        ArrayList<Integer> order = new ArrayList<>();
+        for (int i = 0; i < promise.length; i++)
+            if (promise[i] >= threshold)
+                order.add(i);
+        order.sort((i, j) -> Double.compare(promise[j], promise[i]));
+
+        // Kept start positions are split into as many searches as there are rows, best first.
+        // The total width is the same as one search per row, each start position's share of it is 1 for the
+        // threshold score up to 2 for the best score
+        int kept = order.size();
+        int searches = Math.min(rows, kept);
+        double[] weights = new double[kept];
+        double totalWeight = 0;
+        for (int rank = 0; rank < kept; rank++) {
+            weights[rank] = best > threshold ? 1 + (promise[order.get(rank)] - threshold) / (best - threshold) : 1;
+            totalWeight += weights[rank];
+        }
+        long totalWidth = (long) rows * solutionsToKeep;
+        for (int i = 0; i < searches; i++) {
+            int from = i * kept / searches;
+            int to = (i + 1) * kept / searches;
+            ArrayList<SolutionEntry> startingBoards = new ArrayList<>();
+            double weight = 0;
+            for (int rank = from; rank < to; rank++) {
+                startingBoards.add(starts.get(order.get(rank)));
+                weight += weights[rank];
             }
-        if (!solving)
-            return null;
-        ArrayList<SolutionEntry> solutions = simplifySolutions(new ArrayList<>(syncSolutions));
-//        ArrayList<SolutionEntry> solutions = new ArrayList<>(syncSolutions);
-        solutions.sort((o1, o2) -> Double.compare(o2.getScore(), o1.getScore()));
-        solving = false;
-        return solutions;
+            int width = (int) Math.max(to - from, totalWidth * weight / totalWeight);
+            BeamSearch search = new BeamSearch(handle, scorer, width, maxMoves, collector, table);
+            tasks.add(pool.submit(() -> search.search(startingBoards)));
+        }
+        return collectSolutions(handle, tasks, collector);
+    }
+
+    /**
+     * Starts a short search from every start position, to see which ones are worth searching further.
+     * Each search offers its best boards to the collector, so a listener is updated while the triage runs.
+     *
+     * @param handle    Handle of the solve.
+     * @param starts    Start positions, which each have no moves.
+     * @param scorer    Scorer to score with.
+     * @param collector Collector to offer the best boards to, or null.
+     * @return Task of each start position, in the same order, that gives its best boards, best first.
+     */
+    private ArrayList<ForkJoinTask<ArrayList<SolutionEntry>>> triage(SolveHandle handle, ArrayList<SolutionEntry> starts, Scorer scorer, SolutionCollector collector) {
+        ArrayList<ForkJoinTask<ArrayList<SolutionEntry>>> tasks = new ArrayList<>();
+        int width = triageWidth(handle.getNumDirs());
+        for (SolutionEntry start : starts) {
+            BeamSearch search = new BeamSearch(handle, scorer, width, TRIAGE_DEPTH, collector, null);
+            tasks.add(pool.submit(() -> search.search(Collections.singletonList(start))));
+        }
+        return tasks;
+    }
+
+    /**
+     * A path never goes straight back, so after the first move there are numDirs - 1 moves to pick from.
+     *
+     * @param numDirs Directions that can be moved in.
+     * @return Most paths of TRIAGE_DEPTH moves from one start position, so a triage search never drops one.
+     */
+    private static int triageWidth(int numDirs) {
+        int width = numDirs;
+        for (int depth = 1; depth < TRIAGE_DEPTH; depth++)
+            width *= numDirs - 1;
+        return width;
     }
 
     /**
@@ -133,183 +370,233 @@ public class Solver {
      * @return List of SolutionEntry, which each contain a Board and a score.
      */
     public ArrayList<SolutionEntry> solveWithStart(Board initialBoard, Heuristic heuristic, int maxMoves, int pathScale, int startX, int startY) {
-        if (solving)
-            return null;
-        solving = true;
-        if ((heuristic.getComboType() == ComboType.ROW || initialBoard.orbCount().get(Orb.BOMB) >= 3) && maxMoves < 50) {
-            maxMoves = 50;
-        }
+        SolveHandle handle = new SolveHandle(numDirs, SolveHandle.NO_DEADLINE);
+        Board board = new Board(initialBoard);
+        board.setStart(startX, startY);
+        Scorer scorer = Scorer.of(heuristic);
+        return start(handle, () -> solveStart(handle, board, scorer, maxMoves, pathScale)).getSolutions();
+    }
 
-        List<SolutionEntry> syncSolutions = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * Solves the given Board from its start position, for the given handle.
+     *
+     * @return List of SolutionEntry, best first, or null if the solve was cancelled.
+     */
+    private ArrayList<SolutionEntry> solveStart(SolveHandle handle, Board board, Scorer scorer, int maxMoves, int pathScale) {
+        maxMoves = maxMovesFor(board, scorer, maxMoves);
 
-        int rows = initialBoard.getRows();
-        int cols = initialBoard.getColumns();
+        int cols = board.getColumns();
         int solutionsToKeep = cols * pathScale;
+        TranspositionTable table = new TranspositionTable(TABLE_BYTES);
 
-        ArrayList<Thread> threads = new ArrayList<>();
-
-        Board board = new Board(initialBoard);
-        board.setStart(startX, startY);
-        for (int i = 0; i < numDirs; i++) {
-            if (!solving)
+        // Each first move is its own task
+        ArrayList<ForkJoinTask<ArrayList<SolutionEntry>>> tasks = new ArrayList<>();
+        for (Direction dirToMove : board.getMoveOptions(handle.getNumDirs())) {
+            if (handle.isCancelled())
                 return null;
             Board b = new Board(board);
-            if (b.move(Direction.values()[i])) {
-                if (!solving)
-                    return null;
-                ArrayList<SolutionEntry> startingBoard = new ArrayList<>();
-                startingBoard.add(new SolutionEntry(b, computeScore(b, heuristic)));
-
-                int moves = maxMoves;
-                Thread t = new Thread(() -> {
-                    ArrayList<SolutionEntry> solutionsFound = solve_sub(startingBoard, heuristic, moves, solutionsToKeep);
-                    if (solutionsFound != null)
-                        synchronized (syncSolutions) {
-                            syncSolutions.addAll(solutionsFound);
-                        }
-                });
-                if (!solving)
-                    return null;
-                threads.add(t);
-                t.start();
-            }
+            b.move(dirToMove);
+            ArrayList<SolutionEntry> startingBoard = new ArrayList<>();
+            startingBoard.add(new SolutionEntry(b, scorer.score(b)));
+
+            BeamSearch search = new BeamSearch(handle, scorer, solutionsToKeep, maxMoves, null, table);
+            tasks.add(pool.submit(() -> search.search(startingBoard)));
         }
+        return collectSolutions(handle, tasks, null);
+    }
 
-        for (int i = 0; i < threads.size(); i++)
-            try {
-                threads.get(i).join();
-            } catch (InterruptedException ignored) {
+    /**
+     * Monte Carlo tree search solver with the given Board and Heuristic.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @return List of SolutionEntry, which each contain a Board and a score.
+     */
+    public ArrayList<SolutionEntry> solveMonteCarlo(Board initialBoard, Heuristic heuristic) {
+        return solveMonteCarlo(initialBoard, heuristic, 20, 2000);
+    }
+
+    /**
+     * Monte Carlo tree search solver with each of the given params.
+     * Every start position has its own tree and its own random, and all of them are searched at once.
+     * Uses far less memory than a wide beam, only one node is kept for each iteration.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with.
+     * @param maxMoves     Max moves to do.
+     * @param iterations   Random playouts to do from each start position.
+     * @return List of SolutionEntry, which each contain a Board and a score, or null if the solve was cancelled.
+     */
+    public ArrayList<SolutionEntry> solveMonteCarlo(Board initialBoard, Heuristic heuristic, int maxMoves, int iterations) {
+        SolveHandle handle = new SolveHandle(numDirs, SolveHandle.NO_DEADLINE);
+        Board board = new Board(initialBoard);
+        Scorer scorer = Scorer.of(heuristic);
+        return start(handle, () -> solveMonteCarlo(handle, board, scorer, maxMoves, iterations)).getSolutions();
+    }
+
+    /**
+     * Runs a MonteCarloSearch from every start position of the given Board, for the given handle.
+     *
+     * @return List of SolutionEntry, best first, or null if the solve was cancelled.
+     */
+    private ArrayList<SolutionEntry> solveMonteCarlo(SolveHandle handle, Board initialBoard, Scorer scorer, int maxMoves, int iterations) {
+        maxMoves = maxMovesFor(initialBoard, scorer, maxMoves);
+
+        // Randoms are split here, before any task starts, so each task has its own
+        SplittableRandom random = new SplittableRandom();
+        ArrayList<ForkJoinTask<ArrayList<SolutionEntry>>> tasks = new ArrayList<>();
+        for (int y = 0; y < initialBoard.getRows(); y++) {
+            for (int x = 0; x < initialBoard.getColumns(); x++) {
+                Board start = new Board(initialBoard);
+                start.setStart(x, y);
+                MonteCarloSearch search = new MonteCarloSearch(handle, scorer, maxMoves, iterations, random.split());
+                tasks.add(pool.submit(() -> search.search(start)));
             }
-        if (!solving)
+        }
+        return collectSolutions(handle, tasks, null);
+    }
+
+    /**
+     * Exact solver for COMBO, with default maxMoves and node budget.
+     * Only meant for small boards, or boards solved in a few moves, see solveExact(Board, Heuristic, int, long).
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with, must be for COMBO.
+     * @return The solution with the fewest moves that makes the most combos possible, or why there is none.
+     */
+    public ExactResult solveExact(Board initialBoard, Heuristic heuristic) {
+        return solveExact(initialBoard, heuristic, 20, 5_000_000);
+    }
+
+    /**
+     * Exact solver for COMBO.
+     * Finds the fewest moves from any start position that make maxPossibleCombos() combos,
+     * or shows that no path of maxMoves or less does. Gives up once maxNodes boards have been visited.
+     * Every path is searched in turn, with nothing to cut off a path early, so this is for small boards,
+     * or boards solved in a few moves. A full board that needs around 10 or more moves will usually run out
+     * of nodes, solve() is the one to use for those.
+     *
+     * @param initialBoard Board to start with.
+     * @param heuristic    Heuristic to score with, must be for COMBO.
+     * @param maxMoves     Max moves to do.
+     * @param maxNodes     Max boards to visit.
+     * @return The solution with the fewest moves that makes the most combos possible, or why there is none.
+     */
+    public ExactResult solveExact(Board initialBoard, Heuristic heuristic, int maxMoves, long maxNodes) {
+        if (heuristic.getComboType() != ComboType.COMBO)
+            throw new IllegalArgumentException("Exact solving is only for COMBO, not " + heuristic.getComboType());
+        SolveHandle handle = new SolveHandle(numDirs, SolveHandle.NO_DEADLINE);
+        active.add(handle);
+        try {
+            Board board = new Board(initialBoard);
+            return new ExactSearch(pool, handle, Scorer.of(heuristic), board.maxPossibleCombos(), maxNodes, TABLE_BYTES).search(board, maxMoves);
+        } finally {
+            active.remove(handle);
+        }
+    }
+
+    /**
+     * Boards that need long paths, ROW boards and boards with 3 or more bombs, get at least 50 moves.
+     *
+     * @param board     Board to solve.
+     * @param scorer    Scorer to solve with.
+     * @param maxMoves  Max moves asked for.
+     * @return Max moves to search with.
+     */
+    private static int maxMovesFor(Board board, Scorer scorer, int maxMoves) {
+        if ((scorer.getComboType() == ComboType.ROW || board.orbCount(Orb.BOMB) >= 3) && maxMoves < 50)
+            return 50;
+        return maxMoves;
+    }
+
+    /**
+     * Waits for every task, then simplifies, shortens the paths of and sorts all the solutions they found.
+     *
+     * @param handle    Handle of the solve the tasks are for.
+     * @param tasks     Tasks that were submitted to the pool.
+     * @param collector Collector to give the final solutions to, or null.
+     * @return List of SolutionEntry, best first, or null if the solve was cancelled.
+     */
+    private ArrayList<SolutionEntry> collectSolutions(SolveHandle handle, ArrayList<ForkJoinTask<ArrayList<SolutionEntry>>> tasks, SolutionCollector collector) {
+        ArrayList<SolutionEntry> found = new ArrayList<>();
+        for (ForkJoinTask<ArrayList<SolutionEntry>> task : tasks) {
+            ArrayList<SolutionEntry> solutionsFound = task.join();
+            if (solutionsFound != null)
+                found.addAll(solutionsFound);
+        }
+        if (handle.isCancelled())
             return null;
-        ArrayList<SolutionEntry> solutions = simplifySolutions(new ArrayList<>(syncSolutions));
+        ArrayList<SolutionEntry> solutions = shortenPaths(handle, simplifySolutions(found));
         solutions.sort((o1, o2) -> Double.compare(o2.getScore(), o1.getScore()));
-        solving = false;
+        if (collector != null)
+            collector.finish(solutions);
         return solutions;
     }
 
     /**
-     * Helper function that is to be run by a single Thread, with the given params.
+     * Shortens the path of every given solution at once, each as its own task.
+     * A shortened solution ends on the same Board, so it keeps its score.
+     *
+     * @param handle    Handle of the solve the solutions are for.
+     * @param solutions Solutions to shorten.
+     * @return List of the solutions with their paths shortened, in the same order.
+     */
+    private ArrayList<SolutionEntry> shortenPaths(SolveHandle handle, ArrayList<SolutionEntry> solutions) {
+        ArrayList<ForkJoinTask<SolutionEntry>> tasks = new ArrayList<>(solutions.size());
+        for (SolutionEntry entry : solutions) {
+            tasks.add(pool.submit(() -> {
+                Board shortened = new PathShortener(handle).shorten(entry.getBoard());
+                return shortened == entry.getBoard() ? entry : new SolutionEntry(shortened, entry.getScore());
+            }));
+        }
+        ArrayList<SolutionEntry> shortened = new ArrayList<>(solutions.size());
+        for (ForkJoinTask<SolutionEntry> task : tasks)
+            shortened.add(task.join());
+        return shortened;
+    }
+
+    /**
+     * Helper function that is to be run by a single task, with the given params.
+     * Runs a BeamSearch that is solutionsToKeep wide and maxMoves deep, on the calling thread.
+     * It is stopped by stopSolving().
      *
      * @param startingBoards  Boards to start generating solutions from.
      * @param heuristic       Heuristic to score with.
      * @param maxMoves        Max moves to make.
      * @param solutionsToKeep Num solutions to keep = rows * columns * scale.
-     * @return List of solutions from the given start board.
+     * @return List of solutions from the given start board, or null if it was stopped.
      */
     public ArrayList<SolutionEntry> solve_sub(ArrayList<SolutionEntry> startingBoards, Heuristic heuristic, int maxMoves, int solutionsToKeep) {
-        ArrayList<SolutionEntry> solutions = new ArrayList<>(startingBoards);
-
-        ArrayList<SolutionEntry> oldSolutions = new ArrayList<>();
-        while (!solutions.equals(oldSolutions)) {
-            oldSolutions = new ArrayList<>(solutions);
-            ArrayList<SolutionEntry> solutionsToAdd = new ArrayList<>();
-            for (int i = 0; i < solutions.size(); i++) {
-                Board b = new Board(solutions.get(i).getBoard());
-                if (b.getMoves().size() < maxMoves) {
-                    Direction lastDir = b.getMoves().size() > 0 ? b.getMoves().get(b.getMoves().size() - 1) : null;
-                    for (int j = 0; j < numDirs; j++) {
-                        if (!solving)
-                            return null;
-                        Direction dirToMove = Direction.values()[j];
-                        if (b.canMove(dirToMove) && (lastDir == null || !lastDir.isOppositeTo(dirToMove))) {
-                            Board board = new Board(b);
-                            board.move(dirToMove);
-                            SolutionEntry e = new SolutionEntry(board, computeScore(board, heuristic));
-                            if (!solutionsToAdd.contains(e) && !solutions.contains(e))
-                                solutionsToAdd.add(e);
-                        }
-                    }
-                }
-                if (!solving)
-                    return null;
-            }
-
-            if (!solving)
-                return null;
-
-            solutions.addAll(solutionsToAdd);
-            if (solutions.size() > solutionsToKeep) {
-                solutions.sort((o1, o2) -> Double.compare(o2.getScore(), o1.getScore()));
-                solutions = new ArrayList<>(solutions.subList(0, solutionsToKeep));
-            }
-
-            if (!solving)
-                return null;
+        SolveHandle handle = new SolveHandle(numDirs, SolveHandle.NO_DEADLINE);
+        active.add(handle);
+        try {
+            return new BeamSearch(handle, Scorer.of(heuristic), solutionsToKeep, maxMoves).search(startingBoards);
+        } finally {
+            active.remove(handle);
         }
-        return solutions;
     }
 
     /**
      * Simplifies the given solutions.
      * Keeps every unique solution, which is a solution with it's own type of Matches.
-     * The unique solution with the lowest moves is kept.
+     * The unique solution with the lowest moves is kept, or the first one if more than one has the lowest.
+     * Solutions are grouped by their MatchSignature in a single pass.
      *
      * @param solutions Solutions to simplify.
-     * @return List of the simplified solutions.
+     * @return List of the simplified solutions, in the order each type of Matches was first seen.
      */
     public ArrayList<SolutionEntry> simplifySolutions(ArrayList<SolutionEntry> solutions) {
-        ArrayList<SolutionEntry> simplified = new ArrayList<>();
-        ArrayList<SolutionEntry> toCheck = new ArrayList<>(solutions);
-
-        int index = 0;
-        while (toCheck.size() != 0) {
-            simplified.add(new SolutionEntry(toCheck.remove(0)));
-
-            SolutionEntry currEntry = simplified.get(index);
-            Board current = currEntry.getBoard();
-            ArrayList<Match> currMatches = current.getTotalMatches();
-            int currMoves = current.getMoves().size();
-
-            for (int j = 0; j < toCheck.size(); j++) {
-                SolutionEntry entry = toCheck.get(j);
-                Board board = entry.getBoard();
-                ArrayList<Match> matches = board.getTotalMatches();
-                int moves = board.getMoves().size();
-
-                if (equalsMatchArrays(currMatches, matches)) {
-                    if (moves < currMoves) {
-                        simplified.set(index, entry);
-                    }
-                    toCheck.remove(j);
-                    j--;
-                }
-            }
-            index++;
+        LinkedHashMap<MatchSignature, SolutionEntry> fewestMoves = new LinkedHashMap<>();
+        for (SolutionEntry entry : solutions) {
+            fewestMoves.merge(new MatchSignature(entry.getBoard()), entry,
+                    (kept, other) -> other.getBoard().getNumMoves() < kept.getBoard().getNumMoves() ? other : kept);
         }
+        ArrayList<SolutionEntry> simplified = new ArrayList<>(fewestMoves.size());
+        for (SolutionEntry entry : fewestMoves.values())
+            simplified.add(new SolutionEntry(entry));
         return simplified;
     }
 
-    /**
-     * Checks if the two matches are equal, such that both have the same exact matches.
-     *
-     * @param matches1 First matches to compare.
-     * @param matches2 Second matches to compare.
-     * @return true if the same, false otherwise.
-     */
-    private boolean equalsMatchArrays(ArrayList<Match> matches1, ArrayList<Match> matches2) {
-        if (matches1.size() != matches2.size())
-            return false;
-        ArrayList<Match> toCompare = new ArrayList<>(matches2);
-        for (int i = 0; i < matches1.size(); i++) {
-            boolean found = false;
-            for (int j = 0; j < toCompare.size(); j++) {
-                Match m1 = matches1.get(i);
-                Match m2 = toCompare.get(j);
-                if (m1.getOrbType() == m2.getOrbType()
-                        && m1.getNumOrbs() == m2.getNumOrbs()) {
-                    found = true;
-                    toCompare.remove(j);
-                    break;
-                }
-            }
-            if (!found) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * Compute score of this Board given the Heuristic.
      *
@@ -318,116 +605,16 @@ public class Solver {
      * @return A score for this Board.
      */
     public double computeScore(Board board, Heuristic heuristic) {
-        ComboType comboType = heuristic.getComboType();
-        Orb primaryOrb = heuristic.getPrimaryOrb();
-        HashMap<Orb, Integer> orbCount = board.orbCount();
-        ArrayList<Match> matches = board.getTotalMatches();
-        int matchesMade = matches.size();
-        double score = 0;
-
-        double comboWeight = 0.5;
-        double typeWeight = 0.5;
-        double bombWeight = 5;
-
-        double matchesMadeScore = matchesMade;
-        double typeScore = 0;
-        double bombScore = 0;
-
-        int bombsMatched = board.getInPlaceMatchesFor(Orb.BOMB).size();
-        int numBombs = orbCount.get(Orb.BOMB);
-        if (numBombs >= 3 && bombsMatched < numBombs)
-            bombScore -= numBombs;
-
-        switch (comboType) {
-            case COMBO:
-                comboWeight = 4.0;
-                if (matchesMade + 2 == board.maxPossibleCombos()) {
-                    matchesMadeScore += 1.25 * matchesMade;
-                } else if (matchesMade + 1 == board.maxPossibleCombos()) {
-                    matchesMadeScore += 1.5 * matchesMade;
-                } else if (matchesMade == board.maxPossibleCombos()) {
-                    matchesMadeScore += 2.0 * matchesMade;
-                } else {
-                    matchesMadeScore -= matchesMade / 2.0;
-                }
-//                matchesMadeScore -= board.maxPossibleCombos() - matchesMade;
-                break;
-            case TPA:
-                break;
-            case ROW:
-                comboWeight = 0.1;
-                typeWeight = 4.0;
-                break;
-            case SPARKLE:
-                typeWeight = 3.0;
-                break;
-            case CROSS:
-                typeWeight = 2.0;
-                break;
-        }
-
-        int rows = 0;
-        for (Match m : matches) {
-            if (!m.isExplodedOrbs()) {
-                matchesMadeScore += m.getNumOrbs();
-                if (m.getNumOrbs() >= heuristic.getMinConnectedOrbs())
-                    matchesMadeScore += 2;
-                switch (comboType) {
-                    case COMBO:
-                        matchesMadeScore += m.getNumOrbs();
-                        if (m.getNumOrbs() > 3)
-                            matchesMadeScore -= m.getNumOrbs();
-                        break;
-                    case TPA:
-                        if (m.getNumOrbs() == 4) {
-                            if (m.getOrbType() == primaryOrb)
-                                typeScore += 2;
-                            else
-                                typeScore += 1;
-                        }
-                        break;
-                    case ROW:
-                        if (m.getOrbType() == primaryOrb) {
-                            if (m.isRow(board.getColumns())) {
-                                typeScore += m.getNumOrbs();
-                                rows++;
-                                if (m.getNumOrbs() < heuristic.getMinRowOrbs())
-                                    typeScore -= 2;
-                            } else if (m.getNumOrbs() > orbCount.get(primaryOrb) % 6) {
-                                typeScore -= 4;
-                            }
-                        }
-                        break;
-                    case SPARKLE:
-                        if (m.getNumOrbs() == 5)
-                            if (m.getOrbType() == primaryOrb)
-                                typeScore += 2;
-                        break;
-                    case CROSS:
-                        if (m.isCross() && m.getOrbType() == primaryOrb)
-                            typeScore += 2;
-                        break;
-                }
-            }
-        }
-
-        if (comboType == ComboType.ROW)
-            if (rows < orbCount.get(primaryOrb) / 6)
-                typeScore -= (orbCount.get(primaryOrb) / 6);
-
-        score += matchesMadeScore * comboWeight;
-        score += typeScore * typeWeight;
-        score += bombScore * bombWeight;
-        return score;
+        return Scorer.of(heuristic).score(board);
     }
 
     /**
      * Class to contain a Board and it's score.
      * Prevents multiple calls of computeScore() to increase solve time.
      */
-    public class SolutionEntry {
+    public static class SolutionEntry {
         private final Board board;
-        private final Double score;
+        private final double score;
 
         SolutionEntry(Board board, double score) {
             this.board = new Board(board);
@@ -454,8 +641,42 @@ public class Solver {
             return false;
         }
 
+        public int hashCode() {
+            return board.hashCode();
+        }
+
         public String toString() {
             return board.getTotalMatches() + ": " + score;
         }
     }
+
+    /**
+     * The type of Matches a Board makes, the Orb type and size of each Match packed into an int, in sorted order.
+     * Two Boards have equal signatures when they make the same Matches, in any order.
+     */
+    private static final class MatchSignature {
+        private final int[] matches;
+        private final int hash;
+
+        private MatchSignature(Board board) {
+            List<Match> made = board.evaluate().getMatches();
+            matches = new int[made.size()];
+            for (int i = 0; i < matches.length; i++) {
+                Match m = made.get(i);
+                matches[i] = m.getOrbType().ordinal() << 16 | m.getNumOrbs();
+            }
+            Arrays.sort(matches);
+            hash = Arrays.hashCode(matches);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MatchSignature && Arrays.equals(matches, ((MatchSignature) o).matches);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
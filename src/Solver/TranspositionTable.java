@@ -0,0 +1,90 @@
+package Solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size table of the fewest moves each Board state was reached in, shared by every search of a solve.
+ * A state is the Orb layout and the current position, keyed by Board.getHash().
+ * Each entry is one long, the top bits of the hash with the moves in the low byte, so entries are read and
+ * replaced without locking. Entries are grouped into buckets of WAYS, and a full bucket replaces its entry
+ * with the most moves, since entries with fewer moves prune more.
+ */
+final class TranspositionTable {
+    private static final int WAYS = 4;
+    private static final long MOVES_MASK = 0xFF;
+
+    private final AtomicLongArray entries;
+    private final int bucketMask;
+
+    /**
+     * Creates a table that uses at most about the given amount of memory.
+     *
+     * @param maxBytes Memory budget of the table.
+     */
+    TranspositionTable(long maxBytes) {
+        long buckets = Long.highestOneBit(Math.max(1, maxBytes / (Long.BYTES * WAYS)));
+        buckets = Math.min(buckets, 1 << 24);
+        this.entries = new AtomicLongArray((int) buckets * WAYS);
+        this.bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * @param hash  Hash of the state.
+     * @param moves Moves the state was reached in.
+     * @return true if the state was already reached in the same or fewer moves.
+     */
+    boolean isKnown(long hash, int moves) {
+        long tag = hash & ~MOVES_MASK;
+        int base = bucket(hash);
+        for (int i = 0; i < WAYS; i++) {
+            long entry = entries.get(base + i);
+            if (entry != 0 && (entry & ~MOVES_MASK) == tag)
+                return (entry & MOVES_MASK) <= moves;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the given state with the given moves, unless it is already kept with the same or fewer moves.
+     *
+     * @param hash  Hash of the state.
+     * @param moves Moves the state was reached in.
+     */
+    void record(long hash, int moves) {
+        long tag = hash & ~MOVES_MASK;
+        long stored = Math.min(moves, MOVES_MASK);
+        int base = bucket(hash);
+        // If another thread changes the bucket first, look through it again
+        while (true) {
+            int victim = -1;
+            long victimEntry = 0;
+            long victimMoves = -1;
+            boolean retry = false;
+            for (int i = 0; i < WAYS; i++) {
+                long entry = entries.get(base + i);
+                if (entry == 0) {
+                    victim = i;
+                    victimEntry = 0;
+                    break;
+                }
+                if ((entry & ~MOVES_MASK) == tag) {
+                    if ((entry & MOVES_MASK) <= stored || entries.compareAndSet(base + i, entry, tag | stored))
+                        return;
+                    retry = true;
+                    break;
+                }
+                if ((entry & MOVES_MASK) > victimMoves) {
+                    victim = i;
+                    victimEntry = entry;
+                    victimMoves = entry & MOVES_MASK;
+                }
+            }
+            if (!retry && entries.compareAndSet(base + victim, victimEntry, tag | stored))
+                return;
+        }
+    }
+
+    private int bucket(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & bucketMask) * WAYS;
+    }
+}
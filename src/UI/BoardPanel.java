@@ -31,6 +31,8 @@ public class BoardPanel extends JPanel {
     private int tileWidth, tileHeight;
     private Orb pressedOrb;
     private boolean running, holding, canMoveOrbs, moved, solving;
+    // Goes up with every solve and cancel, a solve only shows its solutions while it is still the current one
+    private volatile int solveId;
     private int currentMouseX, currentMouseY, currentBoardX, currentBoardY;
 
     private ImgAlphaPair[][] boardImgs;
@@ -97,7 +99,7 @@ public class BoardPanel extends JPanel {
     void updateMoves(Board board) {
         movesStartX = board.getStart().x;
         movesStartY = board.getStart().y;
-        moves = new ArrayList<>(board.getMoves());
+        moves = board.getMoves();
         showMoves = true;
     }
 
@@ -226,7 +228,7 @@ public class BoardPanel extends JPanel {
             if (!matchAnimating)
                 return;
             matchAnimating = false;
-            matchesPanel.setMatches(matches, board.getMoves().size());
+            matchesPanel.setMatches(matches, board.getNumMoves());
             updateMoves(board);
         }).start();
     }
@@ -238,6 +240,7 @@ public class BoardPanel extends JPanel {
     void solve() {
         if (!solving) {
             solving = true;
+            int id = ++solveId;
 
             solutionsPanel.unSelect();
             solutionsPanel.clearSolutions();
@@ -245,7 +248,7 @@ public class BoardPanel extends JPanel {
 
             new Thread(() -> {
                 int periods = 0;
-                while (solving) {
+                while (solving && id == solveId) {
                     if (periods > 4)
                         periods = 0;
                     StringBuilder s = new StringBuilder("Solving.");
@@ -265,12 +268,23 @@ public class BoardPanel extends JPanel {
             new Thread(() -> {
                 long start = System.currentTimeMillis();
 
-                ArrayList<Solver.SolutionEntry> solutions = solver.solve(initialBoard, heuristicPanel.getHeuristic(), heuristicPanel.getMaxMoves(), heuristicPanel.getScale());
+                // Show the best solutions so far while solving, updates are queued so the final solutions always come last
+                ArrayList<Solver.SolutionEntry> solutions = solver.solve(initialBoard, heuristicPanel.getHeuristic(), heuristicPanel.getMaxMoves(), heuristicPanel.getScale(),
+                        (found) -> SwingUtilities.invokeLater(() -> {
+                            if (id == solveId)
+                                solutionsPanel.setSolutions(found);
+                        }));
 //                ArrayList<Solver.SolutionEntry> solutions = solver.solveWithStart(initialBoard, heuristicPanel.getHeuristic(), heuristicPanel.getMaxMoves(), heuristicPanel.getScale(), 1, 3);
+                // A cancelled solve leaves everything to the solve that came after it
+                if (id != solveId)
+                    return;
                 solving = false;
                 if (solutions != null) {
                     heuristicPanel.setStatus("Done in " + (System.currentTimeMillis() - start) / 1000 + "s");
-                    solutionsPanel.setSolutions(solutions);
+                    SwingUtilities.invokeLater(() -> {
+                        if (id == solveId)
+                            solutionsPanel.setSolutions(solutions);
+                    });
                 }
             }).start();
         }
@@ -278,6 +292,7 @@ public class BoardPanel extends JPanel {
 
     void cancelSolve() {
         solver.stopSolving();
+        solveId++;
         solving = false;
         heuristicPanel.setStatus("Canceled");
     }
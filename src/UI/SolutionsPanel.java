@@ -124,7 +124,7 @@ public class SolutionsPanel extends JPanel {
             xpos = getWidth() * 3 / 6;
             DrawUtils.drawCenteredString(g, "Combos: " + matches.size(), new Rectangle(xpos, ypos, 0, 0), font);
             xpos = getWidth() * 5 / 6;
-            DrawUtils.drawCenteredString(g, "Moves: " + board.getMoves().size(), new Rectangle(xpos, ypos, 0, 0), font);
+            DrawUtils.drawCenteredString(g, "Moves: " + board.getNumMoves(), new Rectangle(xpos, ypos, 0, 0), font);
 
             xpos = 0;
             ypos += metrics.getAscent() * 2;